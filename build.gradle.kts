@@ -6,6 +6,7 @@ plugins {
     id("org.springframework.boot") version "3.1.4"
     id("io.spring.dependency-management") version "1.1.2"
     id("io.freefair.lombok") version "8.3"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.hetacz"
@@ -25,22 +26,45 @@ repositories {
     mavenCentral()
 }
 
+// load generator in src/loadTest, runs the application on the in memory database of the test profile
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("org.springframework.boot:spring-boot-starter-aop")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    implementation("org.hibernate.orm:hibernate-micrometer")
     implementation("org.springframework.boot:spring-boot-starter-data-rest")
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-cache")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     implementation("org.springframework.boot:spring-boot-starter-websocket")
+    implementation("org.springframework:spring-r2dbc")
+    implementation("io.r2dbc:r2dbc-pool")
+    implementation("io.projectreactor:reactor-core")
     // developmentOnly("org.springframework.boot:spring-boot-docker-compose")
     developmentOnly("org.springframework.boot:spring-boot-devtools")
     implementation("org.webjars:sockjs-client:1.5.1")
     implementation("org.webjars:stomp-websocket:2.3.4")
     implementation("org.jetbrains:annotations:24.0.1")
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.2.0")
+    implementation("org.roaringbitmap:RoaringBitmap:0.9.45")
     testRuntimeOnly("com.h2database:h2")
+    testRuntimeOnly("io.r2dbc:r2dbc-h2")
+    jmhRuntimeOnly("com.h2database:h2")
+    jmhRuntimeOnly("io.r2dbc:r2dbc-h2")
+    "loadTestImplementation"("org.hdrhistogram:HdrHistogram:2.1.12")
+    "loadTestRuntimeOnly"("com.h2database:h2")
+    "loadTestRuntimeOnly"("io.r2dbc:r2dbc-h2")
     runtimeOnly("com.mysql:mysql-connector-j")
+    runtimeOnly("io.asyncer:r2dbc-mysql")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
 //    compileOnly("org.projectlombok:lombok")
 //    annotationProcessor("org.projectlombok:lombok")
@@ -52,6 +76,24 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the load generator, settings are passed as -Pload.<name>=<value>."
+    group = "verification"
+    classpath = loadTest.runtimeClasspath
+    mainClass.set("com.hetacz.productmanager.load.LoadTest")
+    systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+}
+
+// benchmarks in src/jmh run against the H2 database of the test profile, ./gradlew jmh
+jmh {
+    includeTests.set(true)
+    warmupIterations.set(2)
+    iterations.set(3)
+    fork.set(1)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
+
 tasks.named<BootBuildImage>("bootBuildImage") {
     imageName.set("hetacz/${project.name}:${project.version}")
     pullPolicy.set(PullPolicy.IF_NOT_PRESENT)
@@ -0,0 +1,135 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.exporter.CatalogExporter;
+import com.hetacz.productmanager.exporter.ExportFormat;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full exports of a generated catalog of {@code rows} products in two categories each, written to a stream
+ * that only counts bytes. Rows are inserted with plain JDBC batches, as seeding millions of them through JPA
+ * would take longer than the benchmark. Exported rows and bytes (after compression) per second are reported
+ * as secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(time = 30)
+@Fork(jvmArgsAppend = "-Xmx8g")
+public class CatalogExportBenchmark {
+
+    private static final long FIRST_ID = 1_000_000L;
+    private static final long FIRST_CATEGORY_ID = 900_000L;
+    private static final int INSERT_BATCH = 10_000;
+
+    @Param({"2000000", "5000000"})
+    private int rows;
+    @Param({"CSV", "NDJSON", "COLUMNAR"})
+    private ExportFormat format;
+    @Param({"false", "true"})
+    private boolean gzip;
+    private CatalogState catalog;
+    private CatalogExporter exporter;
+
+    @Setup(Level.Trial)
+    public void start() throws SQLException {
+        catalog = CatalogState.start(0);
+        exporter = catalog.bean(CatalogExporter.class);
+        insertRows(catalog.bean(DataSource.class), rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        catalog.stop();
+    }
+
+    @Benchmark
+    public long export(@NotNull Exported exported) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long count = exporter.export(out, format, gzip);
+        exported.rows += count;
+        exported.bytes += out.count;
+        return count;
+    }
+
+    private static void insertRows(@NotNull DataSource dataSource, int rows) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement categories = connection.prepareStatement(
+                        "insert into category (id, name) values (?, ?)");
+                PreparedStatement products = connection.prepareStatement("insert into product "
+                        + "(id, name, description, price, created, modified) values (?, ?, ?, ?, ?, ?)");
+                PreparedStatement links = connection.prepareStatement(
+                        "insert into product_categories (product_id, category_id) values (?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < CatalogState.CATEGORIES; i++) {
+                categories.setLong(1, FIRST_CATEGORY_ID + i);
+                categories.setString(2, "Export %d".formatted(i));
+                categories.addBatch();
+            }
+            categories.executeBatch();
+            for (int i = 0; i < rows; i++) {
+                long id = FIRST_ID + i;
+                products.setLong(1, id);
+                products.setString(2, "export product %d".formatted(i));
+                products.setString(3, "Generated product, number %d of the export benchmark".formatted(i));
+                products.setLong(4, 100L + i % 5000);
+                products.setTimestamp(5, now);
+                products.setTimestamp(6, now);
+                products.addBatch();
+                for (long category : new long[]{i % CatalogState.CATEGORIES, (i + 1) % CatalogState.CATEGORIES}) {
+                    links.setLong(1, id);
+                    links.setLong(2, FIRST_CATEGORY_ID + category);
+                    links.addBatch();
+                }
+                if ((i + 1) % INSERT_BATCH == 0 || i == rows - 1) {
+                    products.executeBatch();
+                    links.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows and bytes exported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Exported {
+
+        public long rows;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            bytes = 0;
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte @NotNull [] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
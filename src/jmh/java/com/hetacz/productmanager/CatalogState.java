@@ -0,0 +1,60 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.product.ProductDto;
+import com.hetacz.productmanager.product.ProductService;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Application running against the in-memory H2 database of the test profile,
+ * seeded with generated products on top of the test data.
+ */
+final class CatalogState {
+
+    static final int CATEGORIES = 20;
+    private static final String[] WORDS = {"bread", "cereal", "laptop", "phone", "cheese", "juice", "lamp", "chair"};
+    private final ConfigurableApplicationContext context;
+
+    private CatalogState(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Starts the application quietly, with the query cache disabled so every query reaches the database.
+     */
+    static @NotNull CatalogState start(int products) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProductmanagerApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.com.hetacz=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "productmanager.query-cache.max-ids=0")
+                .run();
+        CatalogState state = new CatalogState(context);
+        if (products > 0) {
+            state.bean(ProductService.class).addProductsFromDto(dtos("seed", products));
+        }
+        return state;
+    }
+
+    static @NotNull List<ProductDto> dtos(String prefix, int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> ProductDto.of("%s %s %d".formatted(WORDS[i % WORDS.length], prefix, i),
+                        "%s benchmark product".formatted(WORDS[(i / WORDS.length) % WORDS.length]), 100L + i % 5000,
+                        List.of("Benchmark %d".formatted(i % CATEGORIES), "Grocery")))
+                .toList();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,72 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.category.Category;
+import com.hetacz.productmanager.product.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Membership operations on the sorted sets relating products and categories, and their full string rendering,
+ * without a database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EntityBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+    private Product[] products;
+    private Category category;
+    private Product product;
+    private Product missing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = IntStream.range(0, size)
+                .mapToObj(i -> new Product((long) i, "Product %05d".formatted(i), "Description", 100L + i))
+                .toArray(Product[]::new);
+        category = new Category(1L, "Category");
+        for (Product each : products) {
+            category.addProduct(each);
+        }
+        product = new Product(0L, "Product", "Description", 100L, IntStream.range(0, size)
+                .mapToObj(i -> new Category((long) i, "Category %05d".formatted(i)))
+                .toList());
+        missing = new Product(-1L, "Product missing", "Description", 1L);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return category.getProducts().contains(products[size / 2]) && !category.getProducts().contains(missing);
+    }
+
+    @Benchmark
+    public boolean addAndRemove() {
+        SortedSet<Product> set = category.getProducts();
+        return set.add(missing) && set.remove(missing);
+    }
+
+    @Benchmark
+    public SortedSet<Product> fill() {
+        SortedSet<Product> set = new TreeSet<>();
+        for (Product each : products) {
+            set.add(each);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public String productToFullString() {
+        return product.toFullString();
+    }
+
+    @Benchmark
+    public String categoryToFullString() {
+        return category.toFullString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductDto;
+import com.hetacz.productmanager.product.ProductService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk inserts through {@code addProductsFromDto}, the path of {@code POST /api/products/batch}.
+ * Inserted products are deleted after every invocation, outside of the measured time, so each one inserts
+ * into a table of the same size; invocations take milliseconds, which keeps the per invocation overhead low.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductBatchInsertBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int batchSize;
+    private CatalogState catalog;
+    private ProductService productService;
+    private List<ProductDto> batch;
+    private List<Product> inserted = List.of();
+
+    @Setup(Level.Trial)
+    public void start() {
+        catalog = CatalogState.start(0);
+        productService = catalog.bean(ProductService.class);
+        batch = CatalogState.dtos("insert", batchSize);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteInserted() {
+        productService.deleteProducts(inserted.stream().map(Product::getId).toList());
+        inserted = List.of();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        catalog.stop();
+    }
+
+    @Benchmark
+    public List<Product> addProductsFromDto() {
+        inserted = productService.addProductsFromDto(batch);
+        return inserted;
+    }
+}
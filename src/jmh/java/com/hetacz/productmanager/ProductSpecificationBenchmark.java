@@ -0,0 +1,76 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtered queries for every combination of the seven filters of {@code /specific},
+ * selected by the bits of {@code filters}: name, description, min price, max price, created before,
+ * created after and category names, from the lowest bit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductSpecificationBenchmark {
+
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 1 << 1;
+    private static final int MIN = 1 << 2;
+    private static final int MAX = 1 << 3;
+    private static final int BEFORE = 1 << 4;
+    private static final int AFTER = 1 << 5;
+    private static final int CATEGORIES = 1 << 6;
+
+    @Param({"10000"})
+    private int products;
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15",
+            "16", "17", "18", "19", "20", "21", "22", "23", "24", "25", "26", "27", "28", "29", "30", "31",
+            "32", "33", "34", "35", "36", "37", "38", "39", "40", "41", "42", "43", "44", "45", "46", "47",
+            "48", "49", "50", "51", "52", "53", "54", "55", "56", "57", "58", "59", "60", "61", "62", "63",
+            "64", "65", "66", "67", "68", "69", "70", "71", "72", "73", "74", "75", "76", "77", "78", "79",
+            "80", "81", "82", "83", "84", "85", "86", "87", "88", "89", "90", "91", "92", "93", "94", "95",
+            "96", "97", "98", "99", "100", "101", "102", "103", "104", "105", "106", "107", "108", "109", "110",
+            "111", "112", "113", "114", "115", "116", "117", "118", "119", "120", "121", "122", "123", "124",
+            "125", "126", "127"})
+    private int filters;
+    private CatalogState catalog;
+    private ProductService productService;
+    private LocalDateTime before;
+    private LocalDateTime after;
+
+    @Setup(Level.Trial)
+    public void start() {
+        catalog = CatalogState.start(products);
+        productService = catalog.bean(ProductService.class);
+        before = LocalDateTime.now().plusDays(1);
+        after = LocalDateTime.now().minusDays(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        catalog.stop();
+    }
+
+    @Benchmark
+    public List<Product> findBySpecification() {
+        return productService.findBySpecification(
+                has(NAME) ? "bread" : null,
+                has(DESCRIPTION) ? "cheese" : null,
+                has(MIN) ? 1000L : null,
+                has(MAX) ? 4000L : null,
+                has(BEFORE) ? before : null,
+                has(AFTER) ? after : null,
+                has(CATEGORIES) ? Set.of("Benchmark 3", "Benchmark 7") : null,
+                null);
+    }
+
+    private boolean has(int filter) {
+        return (filters & filter) != 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductRepository;
+import com.hetacz.productmanager.product.ProductSpecification;
+import com.hetacz.productmanager.search.ProductTextIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Substring search on product names, with {@code LIKE '%x%'} and through the trigram index, whose ids are then
+ * loaded by primary key. {@code indexOnly} measures the index lookup alone.
+ * Both searches are checked to find the same products before measuring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductTextSearchBenchmark {
+
+    @Param({"50000"})
+    private int products;
+    @Param({"ereal", "aptop", "hees", "seed 12"})
+    private String query;
+    private CatalogState catalog;
+    private ProductRepository productRepository;
+    private ProductTextIndex textIndex;
+
+    @Setup(Level.Trial)
+    public void start() {
+        catalog = CatalogState.start(products);
+        productRepository = catalog.bean(ProductRepository.class);
+        textIndex = catalog.bean(ProductTextIndex.class);
+        if (like().size() != index().size()) {
+            throw new IllegalStateException("Index and LIKE disagree on: " + query);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        catalog.stop();
+    }
+
+    @Benchmark
+    public List<Product> like() {
+        return productRepository.findAll(ProductSpecification.hasNameLike(query));
+    }
+
+    @Benchmark
+    public List<Product> index() {
+        return productRepository.findAll(ProductSpecification.hasIdIn(indexOnly()));
+    }
+
+    @Benchmark
+    public Set<Long> indexOnly() {
+        return textIndex.find(ProductTextIndex.Field.NAME, query).orElseThrow();
+    }
+}
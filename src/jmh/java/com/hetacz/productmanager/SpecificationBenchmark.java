@@ -0,0 +1,57 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductSpecification;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Composing the filters of {@code /specific} into a specification, and turning it into a criteria predicate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpecificationBenchmark {
+
+    private CatalogState catalog;
+    private CriteriaBuilder builder;
+    private LocalDateTime date;
+
+    @Setup(Level.Trial)
+    public void start() {
+        catalog = CatalogState.start(0);
+        builder = catalog.bean(EntityManagerFactory.class).getCriteriaBuilder();
+        date = LocalDateTime.now();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        catalog.stop();
+    }
+
+    @Benchmark
+    public Specification<Product> compose() {
+        return Specification.where(ProductSpecification.hasNameLike("bread"))
+                .and(ProductSpecification.hasDescriptionLike("cheese"))
+                .and(ProductSpecification.hasPriceGreaterOrEqualThan(1000L))
+                .and(ProductSpecification.hasPriceLessOrEqualThan(4000L))
+                .and(ProductSpecification.wasCreatedBefore(date))
+                .and(ProductSpecification.wasCreatedAfter(date.minusDays(1)))
+                .and(ProductSpecification.hasCategoryName("Grocery"));
+    }
+
+    @Benchmark
+    public Predicate composeToPredicate() {
+        CriteriaQuery<Product> query = builder.createQuery(Product.class);
+        Root<Product> root = query.from(Product.class);
+        return compose().toPredicate(root, query, builder);
+    }
+}
@@ -0,0 +1,80 @@
+package com.hetacz.productmanager.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hetacz.productmanager.websocket.ChangeBatch;
+import com.hetacz.productmanager.websocket.ChangeEvent;
+import com.hetacz.productmanager.websocket.ChangeStream;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * STOMP sessions subscribed to product changes, recording how long after a product was saved
+ * its change reached each subscriber.
+ */
+final class ChangeSubscriber {
+
+    private static final String MODIFIED = "modified";
+    private final EndpointStats lag = new EndpointStats();
+    private final WebSocketStompClient client;
+    private final List<StompSession> sessions = new ArrayList<>();
+
+    ChangeSubscriber(ObjectMapper objectMapper) {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        this.client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(converter);
+    }
+
+    void connect(String uri, int count) throws ExecutionException, InterruptedException, TimeoutException {
+        for (int i = 0; i < count; i++) {
+            StompSession session = client.connectAsync(uri, new StompSessionHandlerAdapter() {
+            }).get(10, TimeUnit.SECONDS);
+            session.subscribe(ChangeStream.PRODUCT_TOPIC, new StompSessionHandlerAdapter() {
+
+                @Override
+                public @NotNull Type getPayloadType(@NotNull StompHeaders headers) {
+                    return ChangeBatch.class;
+                }
+
+                @Override
+                public void handleFrame(@NotNull StompHeaders headers, Object payload) {
+                    record((ChangeBatch) payload);
+                }
+            });
+            sessions.add(session);
+        }
+    }
+
+    EndpointStats lag() {
+        return lag;
+    }
+
+    void close() {
+        sessions.forEach(StompSession::disconnect);
+        client.stop();
+    }
+
+    private void record(@NotNull ChangeBatch batch) {
+        LocalDateTime now = LocalDateTime.now();
+        batch.events().stream()
+                .filter(event -> event.type() == ChangeEvent.Type.SAVED)
+                .map(event -> event.fields().get(MODIFIED))
+                .filter(String.class::isInstance)
+                .map(modified -> LocalDateTime.parse((String) modified))
+                .forEach(modified -> lag.record(Math.max(Duration.between(modified, now).toNanos(), 0), false));
+    }
+}
@@ -0,0 +1,37 @@
+package com.hetacz.productmanager.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies in microseconds and error count of one endpoint, recorded from many threads.
+ */
+final class EndpointStats {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private final Histogram latencies = new ConcurrentHistogram(MAX_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    void record(long nanos, boolean error) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_MICROS));
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    void reset() {
+        latencies.reset();
+        errors.reset();
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,64 @@
+package com.hetacz.productmanager.load;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from {@code load.*} system properties.
+ *
+ * @param users       Threads issuing requests, each at an equal share of the rate.
+ * @param rate        Target requests per second of all users together.
+ * @param duration    Time requests are issued for, after the warmup.
+ * @param warmup      Time requests are issued for before anything is recorded.
+ * @param products    Products seeded before the run.
+ * @param batchSize   Products added by a batch insert.
+ * @param subscribers STOMP sessions subscribed to product changes.
+ * @param mix         Relative weight of each operation.
+ * @param report      File the report is written to.
+ */
+record LoadOptions(int users, int rate, Duration duration, Duration warmup, int products, int batchSize,
+        int subscribers, Map<Operation, Integer> mix, Path report) {
+
+    private static final String PREFIX = "load.";
+
+    LoadOptions {
+        if (users < 1 || rate < 1 || products < 1 || batchSize < 1 || mix.isEmpty()) {
+            throw new IllegalArgumentException("Users, rate, products, batch size and mix must be positive");
+        }
+    }
+
+    @Contract(" -> new")
+    static @NotNull LoadOptions fromSystemProperties() {
+        return new LoadOptions(
+                Integer.parseInt(property("users", "50")),
+                Integer.parseInt(property("rate", "500")),
+                Duration.parse(property("duration", "PT60S")),
+                Duration.parse(property("warmup", "PT10S")),
+                Integer.parseInt(property("products", "10000")),
+                Integer.parseInt(property("batch-size", "10")),
+                Integer.parseInt(property("subscribers", "10")),
+                parseMix(property("mix", "read=60,specific=20,insert=10,update=5,delete=5")),
+                Path.of(property("report", "build/reports/load/report.txt")));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    /**
+     * @param mix Comma separated {@code operation=weight} pairs, e.g. {@code read=60,specific=40}.
+     */
+    private static @NotNull Map<Operation, Integer> parseMix(@NotNull String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            weights.put(Operation.of(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+}
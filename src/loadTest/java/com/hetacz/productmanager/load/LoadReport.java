@@ -0,0 +1,65 @@
+package com.hetacz.productmanager.load;
+
+import org.HdrHistogram.Histogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summary table of throughput and latency percentiles per endpoint in milliseconds,
+ * followed by the full percentile distribution of each endpoint in the HdrHistogram format.
+ */
+final class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final String HEADER = "%-34s %9s %7s %9s %9s %9s %9s %9s %9s%n";
+    private static final String ROW = "%-34s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n";
+    private static final String STOMP = "STOMP /topic/product/ lag";
+    private final Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+    private final LoadOptions options;
+    private final double seconds;
+
+    LoadReport(LoadOptions options, double seconds, @NotNull Map<Operation, EndpointStats> operations,
+            EndpointStats lag) {
+        this.options = options;
+        this.seconds = seconds;
+        operations.forEach((operation, stats) -> endpoints.put(operation.getEndpoint(), stats));
+        endpoints.put(STOMP, lag);
+    }
+
+    void write(@NotNull Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            writeSummary(out);
+            endpoints.forEach((endpoint, stats) -> {
+                out.printf("%n%s%n", endpoint);
+                stats.latencies().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            });
+        }
+    }
+
+    void writeSummary(@NotNull PrintStream out) {
+        out.printf("users=%d rate=%d/s duration=%s warmup=%s products=%d batch-size=%d subscribers=%d mix=%s%n%n",
+                options.users(), options.rate(), options.duration(), options.warmup(), options.products(),
+                options.batchSize(), options.subscribers(), options.mix());
+        out.printf(HEADER, "endpoint", "count", "errors", "per sec", "p50", "p90", "p99", "p99.9", "max");
+        endpoints.forEach((endpoint, stats) -> {
+            Histogram latencies = stats.latencies();
+            out.printf(ROW, endpoint, latencies.getTotalCount(), stats.errors(), latencies.getTotalCount() / seconds,
+                    millis(latencies, 50), millis(latencies, 90), millis(latencies, 99), millis(latencies, 99.9),
+                    latencies.getMaxValue() / MICROS_PER_MILLI);
+        });
+    }
+
+    private static double millis(@NotNull Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,146 @@
+package com.hetacz.productmanager.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hetacz.productmanager.ProductmanagerApplication;
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductDto;
+import com.hetacz.productmanager.product.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Starts the application on the in-memory database of the test profile, seeds products and drives a mixed workload
+ * at a fixed rate from many threads, then writes latency percentiles and throughput per endpoint.
+ * Each request is timed from when it was scheduled, not when it was sent, so a stalled server is not hidden
+ * by fewer requests being sent. Run with {@code ./gradlew loadTest -Pload.rate=1000}.
+ */
+@Slf4j
+public final class LoadTest {
+
+    private static final int SEED_CHUNK = 1000;
+    private static final int CATEGORIES = 20;
+    private static final String[] WORDS = {"bread", "cereal", "laptop", "phone", "cheese", "juice", "lamp", "chair"};
+    private final LoadOptions options;
+    private final Workload workload;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+
+    private LoadTest(@NotNull LoadOptions options, Workload workload) {
+        this.options = options;
+        this.workload = workload;
+        this.operations = options.mix().keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += options.mix().get(operations[i]);
+            cumulativeWeights[i] = total;
+            stats.put(operations[i], new EndpointStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.fromSystemProperties();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProductmanagerApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.com.hetacz=WARN",
+                        "logging.level.org.hibernate.SQL=WARN")
+                .run(args);
+        ChangeSubscriber subscriber = new ChangeSubscriber(context.getBean(ObjectMapper.class));
+        try {
+            String port = context.getEnvironment().getRequiredProperty("local.server.port");
+            long[] seeded = seed(context.getBean(ProductService.class), options.products());
+            subscriber.connect("ws://localhost:%s/ws/websocket".formatted(port), options.subscribers());
+            LoadTest test = new LoadTest(options, new Workload("http://localhost:" + port, seeded,
+                    options.batchSize()));
+            test.run(subscriber);
+        } finally {
+            subscriber.close();
+            context.close();
+        }
+    }
+
+    private void run(ChangeSubscriber subscriber) throws Exception {
+        long start = System.nanoTime();
+        long measured = start + options.warmup().toNanos();
+        long end = measured + options.duration().toNanos();
+        long interval = TimeUnit.SECONDS.toNanos(options.users()) / options.rate();
+        ExecutorService users = Executors.newFixedThreadPool(options.users(),
+                new CustomizableThreadFactory("load-user-"));
+        for (int user = 0; user < options.users(); user++) {
+            long first = start + interval * user / options.users();
+            users.execute(() -> drive(first, interval, measured, end));
+        }
+        LockSupport.parkNanos(measured - System.nanoTime());
+        subscriber.lag().reset();
+        users.shutdown();
+        users.awaitTermination(options.duration().toNanos() + TimeUnit.MINUTES.toNanos(10), TimeUnit.NANOSECONDS);
+        LoadReport report = new LoadReport(options, options.duration().toNanos() / 1e9, stats, subscriber.lag());
+        report.write(options.report());
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        report.writeSummary(new PrintStream(summary, true, StandardCharsets.UTF_8));
+        log.info("Load test finished, report written to {}{}{}", options.report().toAbsolutePath(),
+                System.lineSeparator(), summary.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Issues requests of one user at fixed intervals, recording those scheduled after the warmup.
+     */
+    private void drive(long first, long interval, long measured, long end) {
+        for (long scheduled = first; scheduled < end && !Thread.currentThread().isInterrupted();
+                scheduled += interval) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = pick();
+            boolean error = workload.execute(operation);
+            if (scheduled >= measured) {
+                stats.get(operation).record(System.nanoTime() - scheduled, error);
+            }
+        }
+    }
+
+    private Operation pick() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private static long[] seed(ProductService productService, int products) {
+        LongStream.Builder ids = LongStream.builder();
+        for (int from = 0; from < products; from += SEED_CHUNK) {
+            List<ProductDto> chunk = IntStream.range(from, Math.min(from + SEED_CHUNK, products))
+                    .mapToObj(i -> ProductDto.of("%s seed %d".formatted(WORDS[i % WORDS.length], i),
+                            "%s seeded product".formatted(WORDS[(i / WORDS.length) % WORDS.length]),
+                            100L + i % 5000, List.of("Benchmark %d".formatted(i % CATEGORIES), "Grocery")))
+                    .toList();
+            productService.addProductsFromDto(chunk).stream().map(Product::getId).forEach(ids::add);
+        }
+        log.info("Seeded {} products", products);
+        return ids.build().toArray();
+    }
+}
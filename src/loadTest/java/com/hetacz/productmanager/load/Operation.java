@@ -0,0 +1,33 @@
+package com.hetacz.productmanager.load;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Operations of the mixed workload, with the endpoint they are reported under.
+ */
+@Getter
+enum Operation {
+    READ("read", "GET /api/products/{id}"),
+    SPECIFIC("specific", "GET /api/products/specific"),
+    INSERT("insert", "POST /api/products/batch"),
+    UPDATE("update", "PUT /api/products/{id}"),
+    DELETE("delete", "DELETE /api/products/{id}");
+
+    private final String key;
+    private final String endpoint;
+
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    static @NotNull Operation of(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation: %s".formatted(key)));
+    }
+}
@@ -0,0 +1,121 @@
+package com.hetacz.productmanager.load;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Issues the requests of each operation against a running application.
+ * Reads and updates target seeded products, deletes remove products added by inserts of the run,
+ * so reads never miss. A delete with nothing to remove reads instead.
+ */
+final class Workload {
+
+    private static final String JSON = "application/json";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final Pattern ID = Pattern.compile("/api/products/(\\d+)");
+    private static final String PRODUCT = "{\"name\":\"%s load\",\"description\":\"load test\",\"price\":%d,"
+            + "\"categories\":[\"Load\"]}";
+    private static final String[] WORDS = {"bread", "cereal", "laptop", "phone", "cheese", "juice", "lamp", "chair"};
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final Queue<Long> inserted = new ConcurrentLinkedQueue<>();
+    private final String baseUri;
+    private final long[] seeded;
+    private final int batchSize;
+
+    Workload(String baseUri, long[] seeded, int batchSize) {
+        this.baseUri = baseUri;
+        this.seeded = seeded;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return True if the request failed or was answered with an error status.
+     */
+    boolean execute(@NotNull Operation operation) {
+        try {
+            return switch (operation) {
+                case READ -> send(get("/api/products/%d".formatted(randomSeeded()))) >= 400;
+                case SPECIFIC -> send(get(specificQuery())) >= 400;
+                case INSERT -> insert();
+                case UPDATE -> send(request("/api/products/%d".formatted(randomSeeded()))
+                        .PUT(body("{\"price\":%d}".formatted(randomPrice())))
+                        .build()) >= 400;
+                case DELETE -> delete();
+            };
+        } catch (IOException | UncheckedIOException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    private boolean insert() throws IOException, InterruptedException {
+        String products = IntStream.range(0, batchSize)
+                .mapToObj(i -> PRODUCT.formatted(randomWord(), randomPrice()))
+                .collect(Collectors.joining(",", "[", "]"));
+        HttpResponse<String> response = client.send(request("/api/products/batch").POST(body(products)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = ID.matcher(response.body());
+        while (matcher.find()) {
+            inserted.add(Long.parseLong(matcher.group(1)));
+        }
+        return response.statusCode() >= 400;
+    }
+
+    private boolean delete() throws IOException, InterruptedException {
+        Long id = inserted.poll();
+        if (id == null) {
+            return execute(Operation.READ);
+        }
+        return send(request("/api/products/%d".formatted(id)).DELETE().build()) >= 400;
+    }
+
+    private @NotNull String specificQuery() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long min = random.nextLong(100, 3000);
+        return "/api/products/specific?name=%s&min=%d&max=%d&categories=Benchmark%%20%d&limit=50"
+                .formatted(randomWord(), min, min + 2000, random.nextInt(20));
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path)).header(CONTENT_TYPE, JSON);
+    }
+
+    private static HttpRequest.BodyPublisher body(String json) {
+        return HttpRequest.BodyPublishers.ofString(json);
+    }
+
+    private long randomSeeded() {
+        return seeded[ThreadLocalRandom.current().nextInt(seeded.length)];
+    }
+
+    private static long randomPrice() {
+        return ThreadLocalRandom.current().nextLong(100, 5000);
+    }
+
+    private static String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+}
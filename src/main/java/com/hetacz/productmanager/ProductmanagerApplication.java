@@ -2,10 +2,12 @@ package com.hetacz.productmanager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.cache.annotation.EnableCaching;
 
 @EnableCaching
-@SpringBootApplication
+// the reactive read API creates its own R2DBC connections, JPA stays the configured data access
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class ProductmanagerApplication {
 
 	public static void main(String[] args) {
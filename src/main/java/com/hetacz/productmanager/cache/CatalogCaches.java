@@ -0,0 +1,197 @@
+package com.hetacz.productmanager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hetacz.productmanager.category.CategoriesChangedEvent;
+import com.hetacz.productmanager.category.Category;
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductsChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through caches of product and category lookups, and their invalidation.
+ * Entries are evicted once a write commits, by the same change events that keep the search indexes up to date.
+ * A product renders the names of its categories and a category renders its products, so cached entries are indexed
+ * by the ids they reference, and a write evicts the changed entries and those referencing them without a scan.
+ * A lookup is stored only if the catalog version did not change while it loaded, so a value read before a write
+ * committed is never stored after its eviction.
+ * Lookups inside a transaction may see uncommitted state, so they neither read nor fill the caches.
+ * Size, expiry and statistics are configured with {@code spring.cache.caffeine.spec}; the caches are registered
+ * with the cache manager, so they are listed at {@code /actuator/caches} and their metrics published.
+ */
+@Slf4j
+@Component
+public class CatalogCaches implements CacheManagerCustomizer<CaffeineCacheManager> {
+
+    public static final String PRODUCTS = "products";
+    public static final String CATEGORIES = "categories";
+    private static final String EVICTED = "Evicted from {} cache ids: {}";
+    private final CatalogVersion catalogVersion;
+    private final Indexed<Product> products;
+    private final Indexed<Category> categories;
+
+    public CatalogCaches(CatalogVersion catalogVersion, @Value("${spring.cache.caffeine.spec:}") String spec) {
+        this.catalogVersion = catalogVersion;
+        this.products = new Indexed<>(PRODUCTS, spec,
+                product -> product.getCategories().stream().map(Category::getId).toList());
+        this.categories = new Indexed<>(CATEGORIES, spec,
+                category -> category.getProducts().stream().map(Product::getId).toList());
+    }
+
+    @Override
+    public void customize(@NotNull CaffeineCacheManager cacheManager) {
+        cacheManager.registerCustomCache(PRODUCTS, products.cache);
+        cacheManager.registerCustomCache(CATEGORIES, categories.cache);
+    }
+
+    /**
+     * @return Cached product, or the one loaded, which is shared once cached and must not be modified.
+     */
+    public Product product(Long id, @NotNull Supplier<Product> loader) {
+        return cached(products, id, loader);
+    }
+
+    /**
+     * @return Cached category, or the one loaded, which is shared once cached and must not be modified.
+     */
+    public Category category(Long id, @NotNull Supplier<Category> loader) {
+        return cached(categories, id, loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(@NotNull ProductsChangedEvent event) {
+        Set<Long> productIds = new HashSet<>(event.deleted());
+        Set<Long> categoryIds = new HashSet<>();
+        event.saved().forEach(product -> {
+            productIds.add(product.id());
+            categoryIds.addAll(product.categories().keySet());
+        });
+        products.evict(productIds);
+        categories.evict(categoryIds);
+        categories.evictReferencing(productIds);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriesChanged(@NotNull CategoriesChangedEvent event) {
+        Set<Long> categoryIds = new HashSet<>(event.deleted());
+        event.saved().forEach(category -> categoryIds.add(category.id()));
+        categories.evict(categoryIds);
+        products.evictReferencing(categoryIds);
+    }
+
+    /**
+     * The value is indexed after it is stored and the version checked again, so a write committing meanwhile
+     * either finds it in the index or makes the check fail and evicts it here.
+     */
+    private <T> T cached(@NotNull Indexed<T> indexed, Long id, @NotNull Supplier<T> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        T cached = indexed.find(id);
+        if (cached != null) {
+            return cached;
+        }
+        long version = catalogVersion.current();
+        T value = loader.get();
+        if (catalogVersion.current() == version) {
+            indexed.put(id, value);
+            if (catalogVersion.current() != version) {
+                indexed.evict(Set.of(id));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Cache of entities by id, with the ids of cached entities by the ids they reference.
+     * Entries evicted for size or expiry are removed from the index as they are evicted.
+     * An entry replaced by a concurrent load may leave ids in the index it no longer references,
+     * which only evicts it once more than needed.
+     */
+    private static final class Indexed<T> {
+
+        private final String name;
+        private final Cache<Object, Object> cache;
+        private final Map<Long, Set<Long>> referencing = new ConcurrentHashMap<>();
+        private final Function<T, Collection<Long>> references;
+
+        private Indexed(String name, String spec, Function<T, Collection<Long>> references) {
+            this.name = name;
+            this.references = references;
+            this.cache = Caffeine.from(spec)
+                    .evictionListener((key, value, cause) -> {
+                        if (value != null) {
+                            unindex((Long) key, value, false);
+                        }
+                    })
+                    .build();
+        }
+
+        @SuppressWarnings("unchecked")
+        private T find(Long id) {
+            return (T) cache.getIfPresent(id);
+        }
+
+        private void put(Long id, T value) {
+            cache.put(id, value);
+            references.apply(value).forEach(reference -> referencing.compute(reference, (key, ids) -> {
+                Set<Long> referencingIds = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                referencingIds.add(id);
+                return referencingIds;
+            }));
+        }
+
+        private void evict(@NotNull Collection<Long> ids) {
+            if (ids.isEmpty()) {
+                return;
+            }
+            ids.forEach(id -> {
+                Object value = cache.asMap().remove(id);
+                if (value != null) {
+                    unindex(id, value, true);
+                }
+            });
+            log.trace(EVICTED, name, ids);
+        }
+
+        private void evictReferencing(@NotNull Collection<Long> referencedIds) {
+            Set<Long> ids = new HashSet<>();
+            referencedIds.forEach(reference -> {
+                Set<Long> referencingIds = referencing.remove(reference);
+                if (referencingIds != null) {
+                    ids.addAll(referencingIds);
+                }
+            });
+            evict(ids);
+        }
+
+        /**
+         * @param unlessCached Keeps the ids of an entry stored again by a concurrent load, which indexes it only
+         *                     after storing it. Not needed on eviction, as a store waits for the eviction to finish.
+         */
+        @SuppressWarnings("unchecked")
+        private void unindex(Long id, Object value, boolean unlessCached) {
+            references.apply((T) value).forEach(reference -> referencing.computeIfPresent(reference, (key, ids) -> {
+                if (!unlessCached || !cache.asMap().containsKey(id)) {
+                    ids.remove(id);
+                }
+                return ids.isEmpty() ? null : ids;
+            }));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.hetacz.productmanager.cache;
+
+import com.hetacz.productmanager.category.CategoriesChangedEvent;
+import com.hetacz.productmanager.product.ProductsChangedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counter bumped by every committed product or category write, with the time of the last bump.
+ * Anything computed from the catalog and stored under the version read before computing it
+ * is current as long as the version has not changed.
+ * Category writes are also counted separately, as they change how products render without modifying them.
+ * Bumped before other listeners of the same write run, so they see the version including it.
+ */
+@Component
+public class CatalogVersion {
+
+    private final long started = System.currentTimeMillis();
+    private final AtomicReference<Stamp> catalog = new AtomicReference<>(new Stamp(started, 0, started));
+    private final AtomicReference<Stamp> categories = new AtomicReference<>(new Stamp(started, 0, started));
+
+    public long current() {
+        return catalog.get().version();
+    }
+
+    /**
+     * @return Version of the whole catalog, unique across restarts.
+     */
+    public Stamp catalog() {
+        return catalog.get();
+    }
+
+    /**
+     * @return Version of categories only, unique across restarts.
+     */
+    public Stamp categories() {
+        return categories.get();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        bump(catalog);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriesChanged(CategoriesChangedEvent event) {
+        bump(catalog);
+        bump(categories);
+    }
+
+    private static void bump(@NotNull AtomicReference<Stamp> stamp) {
+        stamp.updateAndGet(previous -> new Stamp(previous.started(), previous.version() + 1,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * @param started Startup time in epoch millis, so versions are not repeated after a restart.
+     * @param version Number of writes since startup.
+     * @param changed Time of the last write in epoch millis, startup time if there was none.
+     */
+    public record Stamp(long started, long version, long changed) {
+
+        /**
+         * @return Entity tag of the current state, prefixed with the given resource key.
+         */
+        public String etag(String key) {
+            return "%s-%x-%x".formatted(key, started, version);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.hetacz.productmanager.cache;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Normalized filters of a product query, used as the key of {@link ProductQueryCache}.
+ * Queries that differ only in the order or repetition of category names, or in a missing versus empty
+ * category list, have equal keys.
+ *
+ * @param order   Sort, including cursor and page size for keyset pages.
+ * @param version Catalog version the result was computed at.
+ */
+public record ProductQuery(String name, String description, Long min, Long max, LocalDateTime createdBefore,
+        LocalDateTime createdAfter, SortedSet<String> categoryNames, String order, long version) {
+
+    @Contract("_, _, _, _, _, _, _, _, _ -> new")
+    public static @NotNull ProductQuery of(String name, String description, Long min, Long max,
+            LocalDateTime createdBefore, LocalDateTime createdAfter, @Nullable Collection<String> categoryNames,
+            String order, long version) {
+        SortedSet<String> categories = categoryNames == null
+                ? Collections.emptySortedSet()
+                : Collections.unmodifiableSortedSet(new TreeSet<>(categoryNames));
+        return new ProductQuery(name, description, min, max, createdBefore, createdAfter, categories, order,
+                version);
+    }
+}
@@ -0,0 +1,63 @@
+package com.hetacz.productmanager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hetacz.productmanager.paging.KeysetPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Ids of products matching repeated filter queries, so a repeated query costs a lookup by primary key only.
+ * Keys carry the catalog version they were computed at, so every committed write makes all entries unreachable;
+ * a result computed while a write commits is stored under the version read before the query and is never served.
+ * Queries inside a transaction may see uncommitted writes, so they neither read nor fill the cache.
+ * Memory is bounded by the total number of cached ids.
+ */
+@Component
+public class ProductQueryCache {
+
+    private static final String CACHE_NAME = "productQueries";
+    private final Cache<ProductQuery, KeysetPage<Long>> cache;
+    private final CatalogVersion catalogVersion;
+
+    public ProductQueryCache(CatalogVersion catalogVersion, MeterRegistry registry,
+            @Value("${productmanager.query-cache.max-ids:1000000}") long maxIds,
+            @Value("${productmanager.query-cache.ttl:10m}") Duration ttl) {
+        this.catalogVersion = catalogVersion;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxIds)
+                .<ProductQuery, KeysetPage<Long>>weigher((query, ids) -> ids.items().size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @return Current catalog version, read before the query that a result is stored for.
+     */
+    public long version() {
+        return catalogVersion.current();
+    }
+
+    public Optional<KeysetPage<Long>> find(@NotNull ProductQuery query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(query));
+    }
+
+    public void put(@NotNull ProductQuery query, @NotNull KeysetPage<Long> ids) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                && query.version() == catalogVersion.current()) {
+            cache.put(query, ids);
+        }
+    }
+}
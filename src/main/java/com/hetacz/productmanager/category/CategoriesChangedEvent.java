@@ -0,0 +1,33 @@
+package com.hetacz.productmanager.category;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by category writes. State is copied when the event is created, so listeners running after commit
+ * do not touch entities.
+ *
+ * @param saved   State of created or renamed categories.
+ * @param deleted Ids of deleted categories.
+ */
+public record CategoriesChangedEvent(List<CategoryState> saved, List<Long> deleted) {
+
+    @Contract("_ -> new")
+    public static @NotNull CategoriesChangedEvent saved(@NotNull Collection<Category> categories) {
+        return new CategoriesChangedEvent(categories.stream()
+                .map(category -> new CategoryState(category.getId(), category.getName()))
+                .toList(), List.of());
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull CategoriesChangedEvent deleted(@NotNull Collection<Long> ids) {
+        return new CategoriesChangedEvent(List.of(), List.copyOf(ids));
+    }
+
+    public record CategoryState(Long id, String name) {
+
+    }
+}
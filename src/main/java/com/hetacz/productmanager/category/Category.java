@@ -1,10 +1,7 @@
 package com.hetacz.productmanager.category;
 
 import com.hetacz.productmanager.product.Product;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.ManyToMany;
+import jakarta.persistence.*;
 import lombok.*;
 import org.jetbrains.annotations.NotNull;
 
@@ -16,8 +13,12 @@ import java.util.TreeSet;
 @ToString
 @Getter
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "UK_CATEGORY_NAME", columnNames = "name"))
+@NamedEntityGraph(name = Category.WITH_PRODUCTS, attributeNodes = @NamedAttributeNode("products"))
 public class Category implements Serializable, Comparable<Category> {
 
+    public static final String WITH_PRODUCTS = "Category.products";
+
     @ManyToMany(mappedBy = "categories")
     @ToString.Exclude
     private final SortedSet<Product> products = new TreeSet<>();
@@ -1,18 +1,26 @@
 package com.hetacz.productmanager.category;
 
+import com.hetacz.productmanager.cache.CatalogVersion;
+import com.hetacz.productmanager.exception.ErrorDetails;
+import com.hetacz.productmanager.json.CatalogEncoder;
+import com.hetacz.productmanager.paging.KeysetPage;
+import com.hetacz.productmanager.websocket.ReadBroadcast;
+import com.hetacz.productmanager.websocket.ReadBroadcaster;
+import com.hetacz.productmanager.product.DeletionResult;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -21,14 +29,12 @@ import java.util.List;
 public class CategoryControler {
 
     private static final String INVALID_BODY = "Request body is not valid";
-    private static final String CATEGORIES_IDS_DELETED = "Categories with IDs: %s deleted";
-    private static final String CATEGORY_ID_DELETED = "Category with ID: %d deleted";
+    private static final String URI_DETAILS = "uri=%s";
+    private static final String CATEGORY_TAG = "c%d";
+    private static final String CATEGORIES_TAG = "categories";
     private static final String TOPIC_CATEGORY = "/topic/category/";
-    private static final String CATEGORY_CREATED = "Created category with ID: %d, category: %s";
     private static final String CATEGORY_ADDED = "Category: {} added: {}";
-    private static final String DELETED_CATEGORY = "Deleted category with ID: %d";
     private static final String CATEGORY_DELETED = "Category: {} deleted";
-    private static final String UPDATED_CATEGORY = "Updated category with ID: %d, new category: %s";
     private static final String CATEGORY_UPDATED = "Category: {} updated: {}";
     private static final String CATEGORY_BY_ID = "Get category by ID: %d, category: %s";
     private static final String CATEGORY_WITH_PRODUCTS = "Category: {}, with products: {}";
@@ -36,84 +42,111 @@ public class CategoryControler {
     private static final String CATEGORIES = "Categories: {}";
     private final CategoryService service;
     private final CategoryRepository repository;
-    private final SimpMessagingTemplate template;
+    private final ReadBroadcaster broadcaster;
+    private final CatalogEncoder encoder;
+    private final CatalogVersion catalogVersion;
 
     @Contract(pure = true)
-    public CategoryControler(CategoryService service, CategoryRepository repository, SimpMessagingTemplate template) {
+    public CategoryControler(CategoryService service, CategoryRepository repository, ReadBroadcaster broadcaster,
+            CatalogEncoder encoder, CatalogVersion catalogVersion) {
         this.service = service;
         this.repository = repository;
-        this.template = template;
+        this.broadcaster = broadcaster;
+        this.encoder = encoder;
+        this.catalogVersion = catalogVersion;
     }
 
+    /**
+     * A category renders its products, so it is validated by the catalog version, without querying the database.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<String> getCategoryById(@PathVariable Long id) {
-        Category category = repository.findById(id).orElseThrow();
+    public ResponseEntity<byte[]> getCategoryById(@PathVariable Long id, WebRequest request) {
+        if (isCatalogNotModified(request, CATEGORY_TAG.formatted(id))) {
+            return null;
+        }
+        Category category = service.findById(id);
         getCategoryWithProduct(id, category);
         URI location = getSimpleUri();
         return getFullOkResponse(location, category);
     }
 
     @GetMapping("/")
-    public ResponseEntity<String> getAllCategories() {
-        List<Category> categories = repository.findAll(Sort.by(Sort.Direction.ASC, "id"));
+    public ResponseEntity<byte[]> getAllCategories(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit, WebRequest request) {
+        if (isCatalogNotModified(request, CATEGORIES_TAG)) {
+            return null;
+        }
+        KeysetPage<Category> page = service.findPage(cursor, limit);
+        List<Category> categories = page.items();
         getAllCategories(categories);
         URI location = getSimpleUri();
-        return ResponseEntity.ok()
-                .location(location)
-                .body(categories.stream().map(Category::toFullString).toList().toString());
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().location(location)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (page.hasNext()) {
+            builder.header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return builder.body(encoder.encodeCategories(categories));
     }
 
     @PostMapping(value = "/", consumes = "application/json")
-    public ResponseEntity<String> addCategory(@RequestBody @Valid CategoryDto categoryDto,
+    public ResponseEntity<byte[]> addCategory(@RequestBody @Valid CategoryDto categoryDto,
             @NotNull BindingResult result) {
         if (result.hasErrors()) {
-            return ResponseEntity.badRequest().body(INVALID_BODY);
+            return responseIsInvalid();
         }
         Category category = service.addCategory(categoryDto);
         categoryCreated(category);
         URI location = getUriWithId(category);
-        return ResponseEntity.created(location).body(category.toString());
+        return ResponseEntity.created(location)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(encoder.encodeSummary(category));
     }
 
     @PostMapping(value = "/batch", consumes = "application/json")
-    public ResponseEntity<String> addCategories(@RequestBody @Valid List<CategoryDto> categoryDtos,
+    public ResponseEntity<byte[]> addCategories(@RequestBody @Valid List<CategoryDto> categoryDtos,
             @NotNull BindingResult result) {
         if (result.hasErrors()) {
-            return ResponseEntity.badRequest().body(INVALID_BODY);
+            return responseIsInvalid();
         }
         List<Category> categories = service.addCategoriesFromDto(categoryDtos);
         categories.forEach(this::categoryCreated);
         List<String> locations = categories.stream()
                 .map(category -> "/api/category/%d".formatted(category.getId()))
                 .toList();
-        return new ResponseEntity<>(locations.toString(), HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(encoder.encodeValue(locations));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteCategory(@PathVariable Long id) {
+    public ResponseEntity<byte[]> deleteCategory(@PathVariable Long id) {
         if (repository.findById(id).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         service.deleteCategory(id);
         categoryDeleted(id);
         URI location = getSimpleUri();
-        return ResponseEntity.ok().location(location).body(CATEGORY_ID_DELETED.formatted(id));
+        return ResponseEntity.ok()
+                .location(location)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(encoder.encodeValue(new DeletionResult(List.of(id), List.of())));
     }
 
     @DeleteMapping("/batch")
-    public ResponseEntity<String> deleteCategories(@RequestBody List<Long> ids) {
-        if (repository.findAllByIdIn(ids).isEmpty()) {
+    public ResponseEntity<byte[]> deleteCategories(@RequestBody List<Long> ids) {
+        DeletionResult result = service.deleteCategories(ids);
+        if (result.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        List<Long> idsToDelete = repository.findAllByIdIn(ids).stream().map(Category::getId).toList();
-        service.deleteCategories(idsToDelete);
-        idsToDelete.forEach(this::categoryDeleted);
-        return ResponseEntity.ok().body(CATEGORIES_IDS_DELETED.formatted(idsToDelete));
+        result.deleted().forEach(this::categoryDeleted);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(encoder.encodeValue(result));
     }
 
     // no validation of dto as invalid as not updated
     @PutMapping(value = "/{id}", consumes = "application/json")
-    public ResponseEntity<String> updateCategory(@PathVariable Long id, @RequestBody CategoryDto categoryDto) {
+    public ResponseEntity<byte[]> updateCategory(@PathVariable Long id, @RequestBody CategoryDto categoryDto) {
         if (repository.findById(id).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
@@ -124,8 +157,21 @@ public class CategoryControler {
     }
 
     @NotNull
-    private ResponseEntity<String> getFullOkResponse(URI location, @NotNull Category category) {
-        return ResponseEntity.ok().location(location).body(category.toFullString());
+    private ResponseEntity<byte[]> getFullOkResponse(URI location, @NotNull Category category) {
+        return ResponseEntity.ok().location(location).contentType(MediaType.APPLICATION_JSON)
+                .body(encoder.encode(category));
+    }
+
+    private boolean isCatalogNotModified(@NotNull WebRequest request, String tag) {
+        CatalogVersion.Stamp catalog = catalogVersion.catalog();
+        return request.checkNotModified(catalog.etag(tag), catalog.changed());
+    }
+
+    @NotNull
+    private ResponseEntity<byte[]> responseIsInvalid() {
+        ErrorDetails details = new ErrorDetails(LocalDateTime.now(), INVALID_BODY, URI_DETAILS.formatted(
+                ServletUriComponentsBuilder.fromCurrentRequest().build().getPath()));
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(encoder.encodeValue(details));
     }
 
     @NotNull
@@ -135,16 +181,14 @@ public class CategoryControler {
 
 
     private void getCategoryWithProduct(Long id, Category category) {
-        template.convertAndSend(TOPIC_CATEGORY + id,
-                CATEGORY_BY_ID.formatted(id, category));
-        log.info(CATEGORY_WITH_PRODUCTS, category, category.getProducts().toString());
+        broadcaster.broadcast(ReadBroadcast.CATEGORY, TOPIC_CATEGORY + id,
+                () -> CATEGORY_BY_ID.formatted(id, category));
+        log.debug(CATEGORY_WITH_PRODUCTS, category, category.getProducts());
     }
 
     private void getAllCategories(List<Category> categories) {
-        template.convertAndSend(TOPIC_CATEGORY, ALL_CATEGORIES.formatted(categories));
-        log.info(CATEGORIES, categories);
-        categories.forEach(category -> log.debug(CATEGORY_WITH_PRODUCTS, category.getProducts(),
-                category.getProducts().toString()));
+        broadcaster.broadcast(ReadBroadcast.CATEGORIES, TOPIC_CATEGORY, () -> ALL_CATEGORIES.formatted(categories));
+        log.debug(CATEGORIES, categories);
     }
 
     @NotNull
@@ -152,19 +196,18 @@ public class CategoryControler {
         return ServletUriComponentsBuilder.fromCurrentRequest().path("{id}").buildAndExpand(category.getId()).toUri();
     }
 
+    /**
+     * Subscribers are notified of writes by the change stream once they are committed.
+     */
     private void categoryCreated(@NotNull Category category) {
-        template.convertAndSend(TOPIC_CATEGORY + category.getId(),
-                CATEGORY_CREATED.formatted(category.getId(), category));
         log.info(CATEGORY_ADDED, category.getId(), category);
     }
 
     private void categoryDeleted(Long id) {
-        template.convertAndSend(TOPIC_CATEGORY + id, DELETED_CATEGORY.formatted(id));
         log.info(CATEGORY_DELETED, id);
     }
 
     private void categoryUpdated(Long id, Category category) {
-        template.convertAndSend(TOPIC_CATEGORY + id, UPDATED_CATEGORY.formatted(id, category));
         log.info(CATEGORY_UPDATED, id, category);
     }
 }
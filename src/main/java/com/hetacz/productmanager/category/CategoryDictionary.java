@@ -0,0 +1,99 @@
+package com.hetacz.productmanager.category;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of all categories by name, so writes resolve category names without querying the database.
+ * Loaded on startup and kept up to date by committed category writes. Reads never block;
+ * a name created by a write that has not committed yet is not known, and is looked up in the database instead.
+ */
+@Slf4j
+@Component
+public class CategoryDictionary {
+
+    private static final String LOADED = "Category dictionary loaded with {} categories";
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CategoryDictionary(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public Optional<Long> find(String name) {
+        return Optional.ofNullable(ids.get(name));
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Replaces all entries with categories read from the database. Writes committed meanwhile wait for the reload
+     * and are applied after it, so none is lost.
+     */
+    public synchronized void reload() {
+        List<Object[]> categories = transactionTemplate.execute(status -> entityManager
+                .createQuery("select c.id, c.name from Category c", Object[].class)
+                .getResultList());
+        ids.clear();
+        names.clear();
+        if (categories != null) {
+            categories.forEach(category -> put((Long) category[0], (String) category[1]));
+        }
+        log.info(LOADED, ids.size());
+    }
+
+    /**
+     * Adds a category known to be committed.
+     */
+    public synchronized void add(Long id, String name) {
+        put(id, name);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoriesChanged(@NotNull CategoriesChangedEvent event) {
+        event.saved().forEach(category -> put(category.id(), category.name()));
+        event.deleted().forEach(this::remove);
+    }
+
+    /**
+     * Removes the previous name of a renamed category, unless another category has taken it meanwhile.
+     */
+    private void put(Long id, String name) {
+        String previous = names.put(id, name);
+        if (previous != null && !previous.equals(name)) {
+            ids.remove(previous, id);
+        }
+        ids.put(name, id);
+    }
+
+    private void remove(Long id) {
+        String name = names.remove(id);
+        if (name != null) {
+            ids.remove(name, id);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.hetacz.productmanager.category;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges categories with the same name into the one with the lowest id, before the schema update adds the
+ * {@code UK_CATEGORY_NAME} constraint, which cannot be added while duplicates exist.
+ * Products linked to a duplicate are linked to the kept category instead, then the duplicates are deleted.
+ * Runs before the entity manager factory is created, on its own connection, and does nothing on a new database
+ * or one without duplicates. Names are compared by the database, with the collation the constraint uses.
+ */
+@Slf4j
+@Component
+public class CategoryNameMigration implements InitializingBean {
+
+    private static final String DUPLICATES =
+            "SELECT MIN(id) AS id, name FROM category GROUP BY name HAVING COUNT(*) > 1";
+    private static final String RELINK = """
+            INSERT INTO product_categories (product_id, category_id)
+            SELECT DISTINCT pc.product_id, ? FROM product_categories pc JOIN category c ON c.id = pc.category_id
+            WHERE c.name = ? AND c.id <> ? AND pc.product_id NOT IN
+            (SELECT kept.product_id FROM product_categories kept WHERE kept.category_id = ?)""";
+    private static final String UNLINK = """
+            DELETE FROM product_categories WHERE category_id IN
+            (SELECT c.id FROM category c WHERE c.name = ? AND c.id <> ?)""";
+    private static final String DELETE = "DELETE FROM category WHERE name = ? AND id <> ?";
+    private static final String MERGED = "Merged {} duplicates of category {} into id {}";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CategoryNameMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        merge();
+    }
+
+    /**
+     * @return Number of duplicate categories deleted.
+     */
+    public int merge() {
+        Integer merged = transactionTemplate.execute(status -> {
+            List<Map<String, Object>> duplicates;
+            try {
+                duplicates = jdbcTemplate.queryForList(DUPLICATES);
+            } catch (BadSqlGrammarException e) {
+                log.debug("No category table to migrate yet");
+                return 0;
+            }
+            return duplicates.stream().mapToInt(this::merge).sum();
+        });
+        return merged == null ? 0 : merged;
+    }
+
+    private int merge(@NotNull Map<String, Object> duplicate) {
+        long id = ((Number) duplicate.get("id")).longValue();
+        String name = (String) duplicate.get("name");
+        jdbcTemplate.update(RELINK, id, name, id, id);
+        jdbcTemplate.update(UNLINK, name, id);
+        int deleted = jdbcTemplate.update(DELETE, name, id);
+        log.info(MERGED, deleted, name, id);
+        return deleted;
+    }
+
+    /**
+     * Makes the entity manager factory, and with it the schema update, wait for the migration.
+     */
+    @Component
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnMigration() {
+            super(CategoryNameMigration.class);
+        }
+    }
+}
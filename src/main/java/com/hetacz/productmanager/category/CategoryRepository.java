@@ -1,8 +1,10 @@
 package com.hetacz.productmanager.category;
 
 import org.jetbrains.annotations.NotNull;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,5 +14,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     boolean existsById(@NotNull Long id);
     boolean existsByName(String name);
     Optional<Category> findByName(String name);
+    List<Category> findAllByNameIn(Collection<String> names);
     List<Category> findAllByIdIn(List<Long> ids);
+    @EntityGraph(Category.WITH_PRODUCTS)
+    Optional<Category> findWithProductsById(Long id);
+    @EntityGraph(Category.WITH_PRODUCTS)
+    List<Category> findAllWithProductsByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,127 @@
+package com.hetacz.productmanager.category;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gets categories by name, creating missing ones, without duplicates under concurrent writes.
+ * Known names are answered from the {@link CategoryDictionary}. Unknown names are resolved under one of
+ * {@code productmanager.category.lock-stripes} locks chosen by name, so threads of this instance creating
+ * the same name wait for each other while other names proceed. The category is looked up and, if missing,
+ * inserted in a transaction of its own, committed before the lock is released, so it is visible to every
+ * later write. Writes resolve their categories before their own transaction opens: called inside one, a missing
+ * category takes a second connection while the first is held. Other instances are kept out by the unique
+ * constraint on the name: an insert that conflicts with one is followed by a select of the category that won.
+ * Created categories stay even if the write that needed them rolls back.
+ */
+@Slf4j
+@Component
+public class CategoryResolver {
+
+    private static final String CONFLICT = "Category {} created concurrently, using existing";
+    private final Lock[] stripes;
+    private final CategoryRepository categoryRepository;
+    private final CategoryDictionary categoryDictionary;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter created;
+    private final Counter conflicts;
+
+    public CategoryResolver(CategoryRepository categoryRepository, CategoryDictionary categoryDictionary,
+            PlatformTransactionManager transactionManager, ApplicationEventPublisher publisher,
+            MeterRegistry registry, @Value("${productmanager.category.lock-stripes:64}") int lockStripes) {
+        this.stripes = new Lock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.categoryRepository = categoryRepository;
+        this.categoryDictionary = categoryDictionary;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.created = Counter.builder("catalog.categories.created")
+                .description("Categories created by get-or-create")
+                .register(registry);
+        this.conflicts = Counter.builder("catalog.categories.conflicts")
+                .description("Category inserts that lost to a concurrent insert of the same name")
+                .register(registry);
+    }
+
+    /**
+     * @return Categories by name, detached, with only their id and name, so products link to them by id.
+     */
+    public @NotNull Map<String, Category> getOrCreate(@NotNull Collection<String> names) {
+        Map<String, Category> categories = new HashMap<>();
+        names.forEach(name -> categories.computeIfAbsent(name, this::getOrCreate));
+        return categories;
+    }
+
+    /**
+     * @return Category with the given name, detached, with only its id and name.
+     */
+    public @NotNull Category getOrCreate(String name) {
+        Long id = categoryDictionary.find(name).orElse(null);
+        if (id != null) {
+            return new Category(id, name);
+        }
+        Lock lock = stripeOf(name);
+        lock.lock();
+        try {
+            id = categoryDictionary.find(name).orElse(null);
+            return id != null ? new Category(id, name) : findOrInsert(name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private @NotNull Category findOrInsert(String name) {
+        Category category;
+        try {
+            category = transactionTemplate.execute(status -> categoryRepository.findByName(name)
+                    .orElseGet(() -> insert(name)));
+        } catch (DataIntegrityViolationException e) {
+            conflicts.increment();
+            log.debug(CONFLICT, name);
+            category = transactionTemplate.execute(status -> categoryRepository.findByName(name)
+                    .orElseThrow(() -> e));
+        }
+        if (category == null) {
+            throw new IllegalStateException("Category not resolved: " + name);
+        }
+        categoryDictionary.add(category.getId(), category.getName());
+        return new Category(category.getId(), category.getName());
+    }
+
+    /**
+     * Flushes the insert, so a conflicting name fails here and not at commit.
+     */
+    private @NotNull Category insert(String name) {
+        Category category = categoryRepository.saveAndFlush(new Category(name));
+        publisher.publishEvent(CategoriesChangedEvent.saved(List.of(category)));
+        created.increment();
+        return category;
+    }
+
+    @Contract(pure = true)
+    private Lock stripeOf(@NotNull String name) {
+        int hash = name.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+}
@@ -1,45 +1,101 @@
 package com.hetacz.productmanager.category;
 
+import com.hetacz.productmanager.cache.CatalogCaches;
+import com.hetacz.productmanager.paging.KeysetPage;
+import com.hetacz.productmanager.paging.KeysetPager;
+import com.hetacz.productmanager.product.DeletionResult;
 import com.hetacz.productmanager.product.Product;
 import com.hetacz.productmanager.product.ProductRepository;
 import com.hetacz.productmanager.product.ProductService;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@Timed(value = "catalog.service", histogram = true)
 public class CategoryService {
 
     private static final String NOT_FOUND = "Category with id: %d not found.";
-    private static final String NO_CATEGORIES = "No categories with ids: %s found.";
     private final CategoryRepository categoryRepository;
+    private final CategoryResolver categoryResolver;
     private final ProductRepository productRepository;
     private final ProductService productService;
+    private final KeysetPager pager;
+    private final CatalogCaches catalogCaches;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
     @PersistenceContext
     private EntityManager entityManager;
 
     @Contract(pure = true)
-    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository,
-            ProductService productService) {
+    public CategoryService(CategoryRepository categoryRepository, CategoryResolver categoryResolver,
+            ProductRepository productRepository, ProductService productService, KeysetPager pager,
+            CatalogCaches catalogCaches, ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager) {
         this.categoryRepository = categoryRepository;
+        this.categoryResolver = categoryResolver;
         this.productRepository = productRepository;
         this.productService = productService;
+        this.pager = pager;
+        this.catalogCaches = catalogCaches;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    public Category addCategory(@NotNull Category category) {
-        if (!categoryRepository.existsByName(category.getName())) {
-            return categoryRepository.saveAndFlush(category);
+    /**
+     * Finds a category together with its products in a single query,
+     * so it can be rendered after the persistence context is closed.
+     * Cached outside of transactions, the cached category is shared and must not be modified.
+     *
+     * @param id The id of the category.
+     * @return The category with initialized products.
+     * @throws java.util.NoSuchElementException if there is no category with the given id.
+     */
+    public Category findById(Long id) {
+        return catalogCaches.category(id, () -> categoryRepository.findWithProductsById(id).orElseThrow());
+    }
+
+    /**
+     * Finds a single page of categories ordered by id.
+     * Products of the whole page are fetched with one additional query, instead of one per category.
+     *
+     * @param cursor Cursor returned with the previous page, null for the first page.
+     * @param limit  Page size, default if null.
+     * @return Page of categories with the cursor of the next page.
+     */
+    @Transactional
+    public KeysetPage<Category> findPage(String cursor, Integer limit) {
+        KeysetPage<Category> page = pager.fetch(Category.class, null, null, null, cursor, limit);
+        if (!page.items().isEmpty()) {
+            categoryRepository.findAllWithProductsByIdIn(page.items().stream().map(Category::getId).toList());
         }
-        log.info("Category already exists: {}", category);
-        return category;
+        return page;
+    }
+
+    /**
+     * Adds a category unless one with the same name exists, also when the same name is added concurrently.
+     * Renamed and deleted categories reach the dictionary through the events published after commit.
+     *
+     * @return The category with the given name, detached, with only its id and name.
+     */
+    public Category addCategory(@NotNull Category category) {
+        return categoryResolver.getOrCreate(category.getName());
     }
 
     public Category addCategory(@NotNull CategoryDto categoryDto) {
@@ -62,6 +118,7 @@ public class CategoryService {
      * @param name The new name for the category.
      * @return The updated category with the new name, or null if no category with the given id is found.
      */
+    @Transactional
     public Category updateCategory(Long id, String name) {
         return updateByIdAndName(id, name);
     }
@@ -74,6 +131,7 @@ public class CategoryService {
      * @param categoryDto Contains new fields for given category (in this case name only).
      * @return The updated category with the new name, or null if no category with the given id is found.
      */
+    @Transactional
     public Category updateCategory(Long id, @NotNull CategoryDto categoryDto) {
         return updateByIdAndName(id, categoryDto.name());
     }
@@ -86,43 +144,62 @@ public class CategoryService {
      * @param category The category to be updated.
      * @return The updated category, or null if the category with the given id was not found.
      */
+    @Transactional
     public Category updateCategory(@NotNull Category category) {
         return updateByIdAndName(category.getId(), category.getName());
     }
 
-    @Transactional
+    /**
+     * Products that would be left without a category get the OTHER category, resolved before the transaction opens.
+     */
     public void deleteCategory(Long id) {
-        categoryRepository.findById(id).ifPresentOrElse(category -> deleteCategory(id, category), () -> {
-            throw new IllegalArgumentException(NOT_FOUND.formatted(id));
-        });
+        Category other = productService.otherCategory();
+        transactionTemplate.executeWithoutResult(status -> categoryRepository.findById(id)
+                .ifPresentOrElse(category -> deleteCategory(id, category, other), () -> {
+                    throw new IllegalArgumentException(NOT_FOUND.formatted(id));
+                }));
     }
 
-    @Transactional
-    public void deleteCategories(List<Long> ids) {
-        List<Category> categories = categoryRepository.findAllByIdIn(ids);
-        if (categories.isEmpty()) {
-            throw new IllegalArgumentException(NO_CATEGORIES.formatted(ids));
-        }
-        categories.forEach(category -> deleteCategory(category.getId(), category));
+    /**
+     * Deletes the categories with the given ids, loaded with one query.
+     * Products that would be left without a category get the OTHER category.
+     *
+     * @param ids The ids of the categories to delete.
+     * @return Ids that were deleted and ids that did not exist.
+     */
+    public DeletionResult deleteCategories(@NotNull List<Long> ids) {
+        List<Long> requested = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Category other = productService.otherCategory();
+        Set<Long> deleted = transactionTemplate.execute(status -> {
+            List<Category> categories = categoryRepository.findAllByIdIn(requested);
+            categories.forEach(category -> deleteCategory(category.getId(), category, other));
+            return categories.stream().map(Category::getId).collect(Collectors.toSet());
+        });
+        return new DeletionResult(requested.stream().filter(deleted::contains).toList(),
+                requested.stream().filter(id -> !deleted.contains(id)).toList());
     }
 
     private Category updateByIdAndName(Long id, String name) {
-        return categoryRepository.findById(id).map(category -> {
+        return categoryRepository.findWithProductsById(id).map(category -> {
             category.setName(name);
-            return categoryRepository.saveAndFlush(category);
+            Category saved = categoryRepository.saveAndFlush(category);
+            publisher.publishEvent(CategoriesChangedEvent.saved(List.of(saved)));
+            return saved;
         }).orElseThrow(() -> new IllegalArgumentException(NOT_FOUND.formatted(id)));
     }
 
-    private void deleteCategory(Long id, @NotNull Category category) {
-        Iterable<Product> productsToUpdate = new HashSet<>(category.getProducts());
+    private void deleteCategory(Long id, @NotNull Category category, @NotNull Category other) {
+        Collection<Product> productsToUpdate = new HashSet<>(category.getProducts());
         productsToUpdate.forEach(product -> {
             product.deleteCategory(category);
-            productService.addOtherCategoryIfNotExists(product);
+            productService.addOtherCategoryIfNotExists(product, other);
         });
         productRepository.saveAll(productsToUpdate);
         entityManager.createNativeQuery("DELETE FROM product_categories WHERE category_id = :categoryId")
                 .setParameter("categoryId", id)
                 .executeUpdate();
         categoryRepository.deleteById(id);
+        productService.publishSaved(productsToUpdate);
+        publisher.publishEvent(CategoriesChangedEvent.deleted(List.of(id)));
     }
 }
@@ -0,0 +1,62 @@
+package com.hetacz.productmanager.concurrency;
+
+import com.hetacz.productmanager.exception.DatabaseBusyException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of threads inside services and repositories when requests run on virtual threads,
+ * so they queue here, fairly and with a timeout, instead of all waiting on the connection pool.
+ * Permits are taken by the outermost call only, before a transaction is started.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = VirtualThreadConfig.ENABLED, havingValue = "true")
+public class DatabaseGuard {
+
+    private static final String BUSY = "Database busy, no permit within %d ms";
+    private final ThreadLocal<Boolean> holding = ThreadLocal.withInitial(() -> false);
+    private final Semaphore permits;
+    private final Duration timeout;
+
+    public DatabaseGuard(MeterRegistry registry,
+            @Value("${productmanager.database.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}")
+            int maxConcurrency,
+            @Value("${productmanager.database.acquire-timeout:30s}") Duration timeout) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeout = timeout;
+        Gauge.builder("database.guard.waiting", permits, Semaphore::getQueueLength)
+                .description("Threads waiting for a database permit")
+                .register(registry);
+    }
+
+    @Around("@within(org.springframework.stereotype.Service) || target(org.springframework.data.repository.Repository)")
+    public Object guard(ProceedingJoinPoint point) throws Throwable {
+        if (holding.get()) {
+            return point.proceed();
+        }
+        if (!permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new DatabaseBusyException(BUSY.formatted(timeout.toMillis()));
+        }
+        holding.set(true);
+        try {
+            return point.proceed();
+        } finally {
+            holding.set(false);
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.hetacz.productmanager.concurrency;
+
+import org.apache.coyote.ProtocolHandler;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs Tomcat requests and asynchronous (streamed) responses on virtual threads,
+ * enabled with {@code productmanager.virtual-threads.enabled} on Java 21.
+ * Websocket channels and the event dispatcher pick up the same property.
+ * Concurrent database work is then bounded by {@link DatabaseGuard} instead of the Tomcat pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = VirtualThreadConfig.ENABLED, havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    public static final String ENABLED = "productmanager.virtual-threads.enabled";
+    private final ExecutorService requests = VirtualThreads.newPerTaskExecutor("http-virtual-");
+    private final ExecutorService async = VirtualThreads.newPerTaskExecutor("mvc-async-");
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(requests);
+    }
+
+    @Override
+    public void configureAsyncSupport(@NotNull AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(async));
+    }
+}
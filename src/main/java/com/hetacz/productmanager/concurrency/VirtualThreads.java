@@ -0,0 +1,65 @@
+package com.hetacz.productmanager.concurrency;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads of Java 21, looked up reflectively as the application is still built for Java 17.
+ */
+@UtilityClass
+public class VirtualThreads {
+
+    private static final int VIRTUAL_THREADS_FEATURE = 21;
+    private static final String UNAVAILABLE = "Virtual threads need Java %d, running on %s";
+
+    public boolean isAvailable() {
+        return Runtime.version().feature() >= VIRTUAL_THREADS_FEATURE;
+    }
+
+    /**
+     * @return Factory of virtual threads named with the prefix and a counter.
+     * @throws IllegalStateException if the runtime has no virtual threads.
+     */
+    public @NotNull ThreadFactory factory(String prefix) {
+        checkAvailable();
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(UNAVAILABLE.formatted(VIRTUAL_THREADS_FEATURE, Runtime.version()), e);
+        }
+    }
+
+    /**
+     * @return Virtual thread factory if enabled, otherwise a factory of platform threads, both prefixed.
+     */
+    public @NotNull ThreadFactory factory(String prefix, boolean virtual) {
+        return virtual ? factory(prefix) : new CustomizableThreadFactory(prefix);
+    }
+
+    /**
+     * @return Executor starting a new virtual thread for every task.
+     */
+    public @NotNull ExecutorService newPerTaskExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(UNAVAILABLE.formatted(VIRTUAL_THREADS_FEATURE, Runtime.version()), e);
+        }
+    }
+
+    private void checkAvailable() {
+        if (!isAvailable()) {
+            throw new IllegalStateException(UNAVAILABLE.formatted(VIRTUAL_THREADS_FEATURE, Runtime.version()));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.hetacz.productmanager.exception;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -30,6 +31,16 @@ public class CustomizedResponseEntityExceptionHandler extends ResponseEntityExce
         return getResponseEntity(ex, request, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorDetails> handleDataIntegrityViolationException(Exception ex, WebRequest request) {
+        return getResponseEntity(ex, request, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(DatabaseBusyException.class)
+    public ResponseEntity<ErrorDetails> handleDatabaseBusyException(Exception ex, WebRequest request) {
+        return getResponseEntity(ex, request, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @Contract("_, _, _ -> new")
     private @NotNull ResponseEntity<ErrorDetails> getResponseEntity(@NotNull Exception ex, @NotNull WebRequest request,
             HttpStatus status) {
@@ -0,0 +1,11 @@
+package com.hetacz.productmanager.exception;
+
+/**
+ * Thrown when a request waited too long for its turn to use the database.
+ */
+public class DatabaseBusyException extends RuntimeException {
+
+    public DatabaseBusyException(String message) {
+        super(message);
+    }
+}
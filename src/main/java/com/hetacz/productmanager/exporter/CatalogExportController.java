@@ -0,0 +1,41 @@
+package com.hetacz.productmanager.exporter;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/products/export")
+public class CatalogExportController {
+
+    private static final String FILE_NAME = "catalog.%s%s";
+    private static final MediaType GZIP = new MediaType("application", "gzip");
+    private final CatalogExporter exporter;
+
+    public CatalogExportController(CatalogExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Sends the whole catalog as a file download, written while the database is read.
+     */
+    @GetMapping("/")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        String fileName = FILE_NAME.formatted(format.getExtension(), gzip ? ChannelOutput.GZIP_SUFFIX : "");
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName)
+                        .build()
+                        .toString())
+                .body(outputStream -> exporter.export(outputStream, format, gzip));
+    }
+}
@@ -0,0 +1,47 @@
+package com.hetacz.productmanager.exporter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Command line mode, started with {@code --productmanager.export.file=<path>}: writes the catalog to the file
+ * in {@code productmanager.export.format}, gzipped if the name ends with {@code .gz}, and exits.
+ * The application is started without a web server, see {@link ExportModeEnvironmentPostProcessor}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = CatalogExportRunner.FILE)
+public class CatalogExportRunner implements ApplicationRunner {
+
+    static final String FILE = "productmanager.export.file";
+    private static final String EXPORTED = "Exported {} products to {}";
+    private final CatalogExporter exporter;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final ExportFormat format;
+
+    public CatalogExportRunner(CatalogExporter exporter, ConfigurableApplicationContext context,
+            @Value("${" + FILE + "}") Path file,
+            @Value("${productmanager.export.format:NDJSON}") ExportFormat format) {
+        this.exporter = exporter;
+        this.context = context;
+        this.file = file;
+        this.format = format;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        long count = exporter.export(file, format);
+        log.info(EXPORTED, count, file.toAbsolutePath());
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,151 @@
+package com.hetacz.productmanager.exporter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the whole catalog without loading entities. Products and their links to categories are read
+ * with two forward-only cursors in order of product ids, fetching {@code productmanager.export.fetch-size} rows
+ * at a time, and merged as they are read, so memory does not grow with the catalog.
+ * Both cursors are read in one read-only transaction, at the isolation level of the database,
+ * which on MySQL sees a single snapshot of both tables.
+ */
+@Slf4j
+@Service
+@Timed(value = "catalog.service", histogram = true)
+public class CatalogExporter {
+
+    private static final String CATEGORIES = "select id, name from category order by id";
+    private static final String PRODUCTS = "select id, name, description, price, created, modified from product "
+            + "order by id";
+    private static final String LINKS = "select product_id, category_id from product_categories "
+            + "order by product_id, category_id";
+    private static final String TASK = "Catalog export";
+    private static final String EXPORTED = "Exported {} products as {}, {} bytes";
+    private final DataSource dataSource;
+    private final ObjectMapper mapper;
+    private final SQLExceptionTranslator translator;
+    private final int fetchSize;
+
+    public CatalogExporter(DataSource dataSource, ObjectMapper mapper,
+            @Value("${productmanager.export.fetch-size:1000}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.mapper = mapper;
+        this.translator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param out Closed when the export is written.
+     * @return Number of exported products.
+     */
+    public long export(@NotNull OutputStream out, ExportFormat format, boolean gzip) throws IOException {
+        try (ChannelOutput channel = ChannelOutput.of(out, gzip)) {
+            return export(channel, format);
+        }
+    }
+
+    /**
+     * @param file Overwritten, gzipped if its name ends with {@code .gz}.
+     * @return Number of exported products.
+     */
+    public long export(@NotNull Path file, ExportFormat format) throws IOException {
+        try (ChannelOutput channel = ChannelOutput.of(file)) {
+            return export(channel, format);
+        }
+    }
+
+    private long export(@NotNull ChannelOutput out, ExportFormat format) throws IOException {
+        ExportWriter writer = switch (format) {
+            case CSV -> new CsvExportWriter(out);
+            case NDJSON -> new NdjsonExportWriter(out, mapper);
+            case COLUMNAR -> new ColumnarExportWriter(out);
+        };
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try {
+                long count = scroll(connection, writer);
+                writer.end();
+                log.info(EXPORTED, count, format, out.written());
+                return count;
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            DataAccessException exception = translator.translate(TASK, PRODUCTS, e);
+            throw exception != null ? exception : new UncategorizedSQLException(TASK, PRODUCTS, e);
+        }
+    }
+
+    private long scroll(Connection connection, @NotNull ExportWriter writer) throws SQLException, IOException {
+        writer.begin(categories(connection));
+        long count = 0;
+        long[] categoryIds = new long[8];
+        try (PreparedStatement productQuery = cursor(connection, PRODUCTS);
+                PreparedStatement linkQuery = cursor(connection, LINKS);
+                ResultSet products = productQuery.executeQuery();
+                ResultSet links = linkQuery.executeQuery()) {
+            boolean linked = links.next();
+            while (products.next()) {
+                long id = products.getLong(1);
+                while (linked && links.getLong(1) < id) {
+                    linked = links.next();
+                }
+                int size = 0;
+                while (linked && links.getLong(1) == id) {
+                    if (size == categoryIds.length) {
+                        categoryIds = Arrays.copyOf(categoryIds, size * 2);
+                    }
+                    categoryIds[size++] = links.getLong(2);
+                    linked = links.next();
+                }
+                long price = products.getLong(4);
+                Long nullablePrice = products.wasNull() ? null : price;
+                writer.write(new ExportRow(id, products.getString(2), products.getString(3), nullablePrice,
+                        products.getTimestamp(5).toLocalDateTime(),
+                        products.getTimestamp(6).toLocalDateTime(), Arrays.copyOf(categoryIds, size)));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private @NotNull Map<Long, String> categories(Connection connection) throws SQLException {
+        Map<Long, String> categories = new LinkedHashMap<>();
+        try (PreparedStatement statement = cursor(connection, CATEGORIES);
+                ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                categories.put(rows.getLong(1), rows.getString(2));
+            }
+        }
+        return categories;
+    }
+
+    private @NotNull PreparedStatement cursor(@NotNull Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+    }
+}
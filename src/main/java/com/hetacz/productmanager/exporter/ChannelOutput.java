@@ -0,0 +1,114 @@
+package com.hetacz.productmanager.exporter;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes to a channel through a single direct buffer, handed to the channel only when it is full or flushed.
+ */
+final class ChannelOutput extends OutputStream {
+
+    static final String GZIP_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final WritableByteChannel channel;
+    private long written;
+
+    private ChannelOutput(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Contract("_, _ -> new")
+    static @NotNull ChannelOutput of(@NotNull OutputStream out, boolean gzip) throws IOException {
+        return new ChannelOutput(Channels.newChannel(gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out));
+    }
+
+    /**
+     * Writes the file through its own channel, gzipped if its name ends with {@code .gz}.
+     */
+    static @NotNull ChannelOutput of(@NotNull Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return file.getFileName().toString().endsWith(GZIP_SUFFIX)
+                ? of(Channels.newOutputStream(channel), true)
+                : new ChannelOutput(channel);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int size = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, size);
+            offset += size;
+            length -= size;
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 variable length number, 7 bits per byte.
+     */
+    void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+
+    /**
+     * Writes a signed number, zigzag encoded so small negative numbers stay short.
+     */
+    void writeVarSigned(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * @return Bytes handed to the channel, before compression.
+     */
+    long written() {
+        return written + buffer.position();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
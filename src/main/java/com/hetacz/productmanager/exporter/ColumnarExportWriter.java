@@ -0,0 +1,116 @@
+package com.hetacz.productmanager.exporter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compact binary file, column by column in blocks of rows. All numbers are LEB128 variable length numbers,
+ * signed ones zigzag encoded, strings are their UTF-8 length plus one followed by their bytes, 0 for null.
+ * <ul>
+ *     <li>Magic bytes {@code PMC1}.</li>
+ *     <li>Number of categories, then the id and name of each.</li>
+ *     <li>Blocks of up to {@value #BLOCK_ROWS} products: the number of products, ids as signed differences
+ *     from the previous id, names, descriptions, prices (0 for none), creation and modification times
+ *     as signed differences in milliseconds from those of the previous product (starting from the epoch, at UTC),
+ *     then for each product the number of its categories followed by their ids.</li>
+ *     <li>A block of 0 products at the end.</li>
+ * </ul>
+ * Differences are taken across blocks, so the file is read front to back.
+ */
+final class ColumnarExportWriter implements ExportWriter {
+
+    static final int BLOCK_ROWS = 4096;
+    private static final byte[] MAGIC = {'P', 'M', 'C', '1'};
+    private final ExportRow[] block = new ExportRow[BLOCK_ROWS];
+    private final ChannelOutput out;
+    private int size;
+    private long previousId;
+    private long previousCreated;
+    private long previousModified;
+
+    ColumnarExportWriter(ChannelOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(@NotNull Map<Long, String> categories) throws IOException {
+        out.write(MAGIC);
+        out.writeVarLong(categories.size());
+        for (Map.Entry<Long, String> category : categories.entrySet()) {
+            out.writeVarLong(category.getKey());
+            writeString(category.getValue());
+        }
+    }
+
+    @Override
+    public void write(ExportRow row) throws IOException {
+        block[size++] = row;
+        if (size == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        writeBlock();
+        out.writeVarLong(0);
+    }
+
+    private void writeBlock() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        out.writeVarLong(size);
+        for (int i = 0; i < size; i++) {
+            out.writeVarSigned(block[i].id() - previousId);
+            previousId = block[i].id();
+        }
+        for (int i = 0; i < size; i++) {
+            writeString(block[i].name());
+        }
+        for (int i = 0; i < size; i++) {
+            writeString(block[i].description());
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeVarLong(block[i].price() == null ? 0 : block[i].price());
+        }
+        for (int i = 0; i < size; i++) {
+            long created = epochMillis(block[i].created());
+            out.writeVarSigned(created - previousCreated);
+            previousCreated = created;
+        }
+        for (int i = 0; i < size; i++) {
+            long modified = epochMillis(block[i].modified());
+            out.writeVarSigned(modified - previousModified);
+            previousModified = modified;
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeVarLong(block[i].categoryIds().length);
+            for (long categoryId : block[i].categoryIds()) {
+                out.writeVarLong(categoryId);
+            }
+        }
+        Arrays.fill(block, 0, size, null);
+        size = 0;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeVarLong(bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static long epochMillis(@NotNull LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
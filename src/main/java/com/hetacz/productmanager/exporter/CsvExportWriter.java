@@ -0,0 +1,80 @@
+package com.hetacz.productmanager.exporter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Header line, then one product per record with categories separated by {@code |}, the format read back by
+ * {@code POST /api/products/import/}. Fields with line breaks are quoted and span lines, a {@code |} or {@code \\}
+ * in a category name is escaped with {@code \\}.
+ */
+final class CsvExportWriter implements ExportWriter {
+
+    private static final String HEADER = "id,name,description,price,created,modified,categories\n";
+    private final StringBuilder line = new StringBuilder();
+    private final ChannelOutput out;
+    private Map<Long, String> categories;
+
+    CsvExportWriter(ChannelOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(Map<Long, String> categories) throws IOException {
+        this.categories = categories;
+        out.write(HEADER.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(@NotNull ExportRow row) throws IOException {
+        line.setLength(0);
+        line.append(row.id()).append(',');
+        appendField(row.name()).append(',');
+        appendField(row.description()).append(',');
+        line.append(row.price() == null ? "" : row.price()).append(',');
+        line.append(row.created()).append(',');
+        line.append(row.modified()).append(',');
+        StringBuilder names = new StringBuilder();
+        for (long categoryId : row.categoryIds()) {
+            if (!names.isEmpty()) {
+                names.append('|');
+            }
+            appendCategory(names, categories.get(categoryId));
+        }
+        appendField(names.toString()).append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void end() {
+        // nothing after the last line
+    }
+
+    private static void appendCategory(StringBuilder names, @NotNull String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '|' || c == '\\') {
+                names.append('\\');
+            }
+            names.append(c);
+        }
+    }
+
+    /**
+     * Quotes fields with separators, quotes or surrounding spaces, doubling quotes inside them.
+     */
+    private StringBuilder appendField(String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quoted = !value.strip().equals(value) || value.chars().anyMatch(c -> c == ',' || c == '"'
+                || c == '\n' || c == '\r');
+        if (!quoted) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,31 @@
+package com.hetacz.productmanager.exporter;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+/**
+ * Formats of catalog exports.
+ */
+@Getter
+public enum ExportFormat {
+    /**
+     * Header line, then one product per line.
+     */
+    CSV(new MediaType("text", "csv"), "csv"),
+    /**
+     * One product JSON object per line.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    /**
+     * Binary columns in blocks of rows, described in {@link ColumnarExportWriter}.
+     */
+    COLUMNAR(MediaType.APPLICATION_OCTET_STREAM, "pmc");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+}
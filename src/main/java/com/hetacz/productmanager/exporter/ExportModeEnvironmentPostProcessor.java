@@ -0,0 +1,28 @@
+package com.hetacz.productmanager.exporter;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Starts the command line export without a web server, so it does not need the port of a running instance,
+ * however {@value CatalogExportRunner#FILE} is given. Registered in {@code META-INF/spring.factories}.
+ */
+public class ExportModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String WEB_APPLICATION_TYPE = "spring.main.web-application-type";
+
+    @Override
+    public void postProcessEnvironment(@NotNull ConfigurableEnvironment environment,
+            @NotNull SpringApplication application) {
+        if (environment.containsProperty(CatalogExportRunner.FILE)) {
+            environment.getPropertySources().addFirst(new MapPropertySource("exportMode",
+                    Map.of(WEB_APPLICATION_TYPE, WebApplicationType.NONE.name())));
+        }
+    }
+}
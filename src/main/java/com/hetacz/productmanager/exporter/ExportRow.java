@@ -0,0 +1,11 @@
+package com.hetacz.productmanager.exporter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Product as read from the cursors of an export, with ids of its categories in ascending order.
+ */
+record ExportRow(long id, String name, String description, Long price, LocalDateTime created,
+        LocalDateTime modified, long[] categoryIds) {
+
+}
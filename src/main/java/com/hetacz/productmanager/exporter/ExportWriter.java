@@ -0,0 +1,19 @@
+package com.hetacz.productmanager.exporter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes exported products in one format, a row at a time.
+ */
+interface ExportWriter {
+
+    /**
+     * @param categories Names of all categories by id, in ascending order of ids.
+     */
+    void begin(Map<Long, String> categories) throws IOException;
+
+    void write(ExportRow row) throws IOException;
+
+    void end() throws IOException;
+}
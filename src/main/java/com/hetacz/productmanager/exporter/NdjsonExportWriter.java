@@ -0,0 +1,56 @@
+package com.hetacz.productmanager.exporter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * One product JSON object per line, with names of its categories, the format read back by
+ * {@code POST /api/products/import/}.
+ */
+final class NdjsonExportWriter implements ExportWriter {
+
+    private final JsonGenerator generator;
+    private Map<Long, String> categories;
+
+    NdjsonExportWriter(ChannelOutput out, @NotNull ObjectMapper mapper) throws IOException {
+        this.generator = mapper.getFactory()
+                .createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void begin(Map<Long, String> categories) {
+        this.categories = categories;
+    }
+
+    @Override
+    public void write(@NotNull ExportRow row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", row.id());
+        generator.writeStringField("name", row.name());
+        generator.writeStringField("description", row.description());
+        if (row.price() == null) {
+            generator.writeNullField("price");
+        } else {
+            generator.writeNumberField("price", row.price());
+        }
+        generator.writeStringField("created", row.created().toString());
+        generator.writeStringField("modified", row.modified().toString());
+        generator.writeArrayFieldStart("categories");
+        for (long categoryId : row.categoryIds()) {
+            generator.writeString(categories.get(categoryId));
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void end() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,36 @@
+package com.hetacz.productmanager.importer;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+
+/**
+ * Formats of imported product catalogs, one product per line.
+ */
+@Getter
+public enum ImportFormat {
+    /**
+     * Header line naming the {@code name}, {@code description}, {@code price} and {@code categories} columns,
+     * then one product per line. Categories are separated by {@code |}.
+     */
+    CSV(new MediaType("text", "csv")),
+    /**
+     * One product JSON object per line, as accepted by {@code POST /api/products/}.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    ImportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public static @NotNull ImportFormat of(MediaType mediaType) {
+        return Arrays.stream(values())
+                .filter(format -> format.mediaType.isCompatibleWith(mediaType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported import format: " + mediaType));
+    }
+}
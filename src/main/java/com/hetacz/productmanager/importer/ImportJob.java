@@ -0,0 +1,75 @@
+package com.hetacz.productmanager.importer;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an import, updated in the transaction of every committed chunk,
+ * so an interrupted import resumes after the last chunk that was committed.
+ */
+@Entity
+@Getter
+@ToString
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ImportJob implements Serializable {
+
+    private static final int MAX_FAILURE_LENGTH = 255;
+
+    private final LocalDateTime started = LocalDateTime.now();
+    @Id
+    private String id;
+    @Enumerated(EnumType.STRING)
+    private ImportFormat format;
+    private int chunkSize;
+    private long committedChunks;
+    private long importedRows;
+    private long rejectedRows;
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.RUNNING;
+    private String failure;
+    private LocalDateTime modified = LocalDateTime.now();
+
+    public ImportJob(String id, ImportFormat format, int chunkSize) {
+        this.id = id;
+        this.format = format;
+        this.chunkSize = chunkSize;
+    }
+
+    void chunkCommitted(int imported, int rejected) {
+        committedChunks++;
+        importedRows += imported;
+        rejectedRows += rejected;
+        modified = LocalDateTime.now();
+    }
+
+    void resume() {
+        status = Status.RUNNING;
+        failure = null;
+        modified = LocalDateTime.now();
+    }
+
+    void complete() {
+        status = Status.COMPLETED;
+        modified = LocalDateTime.now();
+    }
+
+    void fail(String message) {
+        status = Status.FAILED;
+        failure = message == null || message.length() <= MAX_FAILURE_LENGTH
+                ? message
+                : message.substring(0, MAX_FAILURE_LENGTH);
+        modified = LocalDateTime.now();
+    }
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,7 @@
+package com.hetacz.productmanager.importer;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, String> {
+
+}
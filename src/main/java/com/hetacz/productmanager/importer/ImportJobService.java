@@ -0,0 +1,93 @@
+package com.hetacz.productmanager.importer;
+
+import com.hetacz.productmanager.category.Category;
+import com.hetacz.productmanager.product.ProductDto;
+import com.hetacz.productmanager.product.ProductService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.transaction.Transactional;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Transactions of an import, each chunk of products is added together with the progress of its job.
+ */
+@Service
+@Timed(value = "catalog.service", histogram = true)
+public class ImportJobService {
+
+    private static final String NOT_FOUND = "Import not found: %s";
+    private static final String COMPLETED = "Import %s is already completed";
+    private static final String FORMAT_CHANGED = "Import %s was started as %s";
+    private final ImportJobRepository repository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+
+    public ImportJobService(ImportJobRepository repository, ProductService productService,
+            PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ImportJob findById(String id) {
+        return repository.findById(id).orElseThrow(() -> new NoSuchElementException(NOT_FOUND.formatted(id)));
+    }
+
+    /**
+     * Starts a new import, or resumes an unfinished one with the same id and its original chunk size.
+     */
+    @Transactional
+    public ImportJob start(String id, ImportFormat format, int chunkSize) {
+        ImportJob job = repository.findById(id).orElse(null);
+        if (job == null) {
+            return repository.save(new ImportJob(id, format, chunkSize));
+        }
+        if (job.getStatus() == ImportJob.Status.COMPLETED) {
+            throw new IllegalArgumentException(COMPLETED.formatted(id));
+        }
+        if (job.getFormat() != format) {
+            throw new IllegalArgumentException(FORMAT_CHANGED.formatted(id, job.getFormat()));
+        }
+        job.resume();
+        return job;
+    }
+
+    /**
+     * Categories of the chunk are resolved before its transaction opens, so creating them does not need
+     * a second connection while the chunk holds one.
+     *
+     * @param products Valid products of the chunk.
+     * @param rejected Number of invalid rows in the chunk.
+     */
+    public ImportJob commitChunk(String id, @NotNull List<ProductDto> products, int rejected) {
+        Map<String, Category> categories = products.isEmpty() ? Map.of() : productService.categoriesOf(products);
+        return transactionTemplate.execute(status -> {
+            ImportJob job = findById(id);
+            if (!products.isEmpty()) {
+                productService.addProductsFromDto(products, categories);
+            }
+            job.chunkCommitted(products.size(), rejected);
+            return job;
+        });
+    }
+
+    @Transactional
+    public ImportJob complete(String id) {
+        ImportJob job = findById(id);
+        job.complete();
+        return job;
+    }
+
+    @Transactional
+    public ImportJob fail(String id, String message) {
+        ImportJob job = findById(id);
+        job.fail(message);
+        return job;
+    }
+}
@@ -0,0 +1,20 @@
+package com.hetacz.productmanager.importer;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * @param errors Rows rejected by this request, at most {@code productmanager.import.max-errors} of them,
+ *               {@code rejectedRows} counts all rejected rows of the import.
+ */
+public record ImportResult(String id, ImportJob.Status status, int chunkSize, long committedChunks,
+        long importedRows, long rejectedRows, String failure, List<RowError> errors) {
+
+    @Contract("_, _ -> new")
+    public static @NotNull ImportResult of(@NotNull ImportJob job, List<RowError> errors) {
+        return new ImportResult(job.getId(), job.getStatus(), job.getChunkSize(), job.getCommittedChunks(),
+                job.getImportedRows(), job.getRejectedRows(), job.getFailure(), errors);
+    }
+}
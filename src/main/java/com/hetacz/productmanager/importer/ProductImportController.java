@@ -0,0 +1,51 @@
+package com.hetacz.productmanager.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/products/import")
+public class ProductImportController {
+
+    private static final String IMPORTED = "Import: {} {}, {} rows imported, {} rejected";
+    private final ProductImporter importer;
+
+    public ProductImportController(ProductImporter importer) {
+        this.importer = importer;
+    }
+
+    /**
+     * Reads the body while it is being uploaded. Answers 500 with the progress of the import if a chunk
+     * failed to commit, sending the same file again with the returned id continues after the last committed chunk.
+     */
+    @PostMapping(value = "/", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportResult> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @RequestParam(required = false) String id, @RequestParam(required = false) Integer chunkSize,
+            InputStream body) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            ImportResult result = importer.importProducts(id, ImportFormat.of(contentType), chunkSize, reader);
+            log.info(IMPORTED, result.id(), result.status(), result.importedRows(), result.rejectedRows());
+            return ResponseEntity.status(result.status() == ImportJob.Status.COMPLETED
+                            ? HttpStatus.OK
+                            : HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(result);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportResult> getImport(@PathVariable String id) {
+        return ResponseEntity.ok(importer.findById(id));
+    }
+}
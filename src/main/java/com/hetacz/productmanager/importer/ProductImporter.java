@@ -0,0 +1,313 @@
+package com.hetacz.productmanager.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hetacz.productmanager.concurrency.VirtualThreads;
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports products from a stream of lines without holding more than a few chunks of it in memory.
+ * The calling thread reads chunks of {@code productmanager.import.chunk-size} rows and hands them to a pool
+ * of {@code productmanager.import.parallelism} threads, which parse and validate them.
+ * Parsed chunks are committed in file order, each in its own transaction together with the progress of the import.
+ * Beyond {@code productmanager.import.queue-capacity} chunks waiting for a parser or to be committed, reading stops
+ * until the oldest one is committed, so a slow database slows down the upload instead of filling the heap.
+ * An import that failed, or was cut off, resumes from the chunk after the last committed one when the same file
+ * is sent again under the same id.
+ */
+@Slf4j
+@Component
+public class ProductImporter {
+
+    private static final String RUNNING = "Import %s is already running";
+    private static final String PROGRESS = "Import {}: {} chunks committed, {} rows imported, {} rejected";
+    private static final String RESUMED = "Import {} resumed after chunk {}";
+    private static final String FAILED = "Import {} failed";
+    private static final String INTERRUPTED = "Import interrupted";
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final ImportJobService jobService;
+    private final Validator validator;
+    private final ObjectMapper mapper;
+    private final ThreadPoolExecutor parsers;
+    private final int defaultChunkSize;
+    private final int maxChunkSize;
+    private final int window;
+    private final int maxErrors;
+    private final Counter imported;
+    private final Counter rejected;
+
+    public ProductImporter(ImportJobService jobService, Validator validator, ObjectMapper mapper,
+            MeterRegistry registry,
+            @Value("${productmanager.import.chunk-size:1000}") int defaultChunkSize,
+            @Value("${productmanager.import.max-chunk-size:10000}") int maxChunkSize,
+            @Value("${productmanager.import.parallelism:0}") int parallelism,
+            @Value("${productmanager.import.queue-capacity:4}") int queueCapacity,
+            @Value("${productmanager.import.max-errors:1000}") int maxErrors,
+            @Value("${productmanager.virtual-threads.enabled:false}") boolean virtualThreads) {
+        this.jobService = jobService;
+        this.validator = validator;
+        this.mapper = mapper;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // imports running at once share the pool, callers parse their own chunks when it is saturated
+        this.parsers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads + queueCapacity),
+                VirtualThreads.factory("import-parse-", virtualThreads), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.defaultChunkSize = defaultChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.window = threads + queueCapacity;
+        this.maxErrors = maxErrors;
+        this.imported = Counter.builder("catalog.import.rows")
+                .tag("outcome", "imported")
+                .description("Imported rows")
+                .register(registry);
+        this.rejected = Counter.builder("catalog.import.rows")
+                .tag("outcome", "rejected")
+                .description("Imported rows rejected as invalid")
+                .register(registry);
+    }
+
+    /**
+     * @param id        Id of the import, a new one is generated if null. An unfinished import with the same id
+     *                  is resumed, skipping the rows of its committed chunks.
+     * @param chunkSize Rows per transaction, ignored when resuming.
+     * @param reader    Lines of the file, closed by the caller.
+     * @return State of the import when the file was read to the end, or when a chunk failed to commit.
+     */
+    public ImportResult importProducts(String id, @NotNull ImportFormat format, Integer chunkSize,
+            @NotNull BufferedReader reader) {
+        String jobId = id != null ? id : UUID.randomUUID().toString();
+        if (!running.add(jobId)) {
+            throw new IllegalArgumentException(RUNNING.formatted(jobId));
+        }
+        try {
+            ImportJob job = jobService.start(jobId, format, chunkSizeOf(chunkSize));
+            if (job.getCommittedChunks() > 0) {
+                log.info(RESUMED, jobId, job.getCommittedChunks());
+            }
+            return run(job, format, reader);
+        } finally {
+            running.remove(jobId);
+        }
+    }
+
+    public ImportResult findById(String id) {
+        return ImportResult.of(jobService.findById(id), List.of());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsers.shutdownNow();
+    }
+
+    private @NotNull ImportResult run(@NotNull ImportJob job, ImportFormat format, BufferedReader reader) {
+        List<RowError> errors = new ArrayList<>();
+        Deque<Future<ParsedChunk>> pending = new ArrayDeque<>(window);
+        try {
+            LineReader lines = new LineReader(reader, format == ImportFormat.CSV);
+            RowParser parser = parserOf(format, lines);
+            lines.skip(job.getCommittedChunks() * job.getChunkSize());
+            List<Line> chunk = lines.chunk(job.getChunkSize());
+            while (!chunk.isEmpty()) {
+                if (pending.size() == window) {
+                    job = commit(job, pending.removeFirst(), errors);
+                }
+                List<Line> rows = chunk;
+                pending.addLast(parsers.submit(() -> parse(parser, rows)));
+                chunk = lines.chunk(job.getChunkSize());
+            }
+            while (!pending.isEmpty()) {
+                job = commit(job, pending.removeFirst(), errors);
+            }
+            return ImportResult.of(jobService.complete(job.getId()), errors);
+        } catch (RuntimeException e) {
+            pending.forEach(future -> future.cancel(true));
+            log.error(FAILED, job.getId(), e);
+            return ImportResult.of(jobService.fail(job.getId(), e.getMessage()), errors);
+        }
+    }
+
+    private ImportJob commit(@NotNull ImportJob job, @NotNull Future<ParsedChunk> future, List<RowError> errors) {
+        ParsedChunk chunk = await(future);
+        ImportJob committed = jobService.commitChunk(job.getId(), chunk.products(), chunk.errors().size());
+        imported.increment(chunk.products().size());
+        rejected.increment(chunk.errors().size());
+        chunk.errors().stream().limit(Math.max(maxErrors - errors.size(), 0)).forEach(errors::add);
+        log.debug(PROGRESS, committed.getId(), committed.getCommittedChunks(), committed.getImportedRows(),
+                committed.getRejectedRows());
+        return committed;
+    }
+
+    private @NotNull ParsedChunk parse(RowParser parser, @NotNull List<Line> lines) {
+        List<ProductDto> products = new ArrayList<>(lines.size());
+        List<RowError> errors = new ArrayList<>();
+        for (Line line : lines) {
+            try {
+                ProductDto product = parser.parse(line.text());
+                Set<String> violations = validate(product);
+                if (violations.isEmpty()) {
+                    products.add(product);
+                } else {
+                    errors.add(new RowError(line.number(), String.join(", ", violations)));
+                }
+            } catch (IllegalArgumentException e) {
+                errors.add(new RowError(line.number(), e.getMessage()));
+            }
+        }
+        return new ParsedChunk(products, errors);
+    }
+
+    /**
+     * Checks the constraints of the dto, and those of the product it becomes, which also rejects missing fields.
+     */
+    private @NotNull Set<String> validate(@NotNull ProductDto product) {
+        Set<String> violations = new TreeSet<>();
+        validator.validate(product).forEach(violation -> violations.add(messageOf(violation)));
+        validator.validate(new Product(product.name(), product.description(), product.price()))
+                .forEach(violation -> violations.add(messageOf(violation)));
+        return violations;
+    }
+
+    private int chunkSizeOf(Integer chunkSize) {
+        if (chunkSize == null) {
+            return defaultChunkSize;
+        }
+        if (chunkSize < 1 || chunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and %d".formatted(maxChunkSize));
+        }
+        return chunkSize;
+    }
+
+    private @NotNull RowParser parserOf(@NotNull ImportFormat format, LineReader lines) {
+        if (format == ImportFormat.NDJSON) {
+            return RowParser.ndjson(mapper);
+        }
+        Line header = lines.next();
+        if (header == null) {
+            throw new IllegalArgumentException("Missing CSV header");
+        }
+        return RowParser.csv(header.text());
+    }
+
+    private static @NotNull String messageOf(@NotNull ConstraintViolation<?> violation) {
+        return "%s %s".formatted(violation.getPropertyPath(), violation.getMessage());
+    }
+
+    private static ParsedChunk await(@NotNull Future<ParsedChunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(INTERRUPTED, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private record Line(long number, String text) {
+
+    }
+
+    private record ParsedChunk(List<ProductDto> products, List<RowError> errors) {
+
+    }
+
+    /**
+     * Numbers lines from 1 and skips blank ones. With quoted line breaks, as in CSV, a line ending inside quotes
+     * is joined with the following ones into one record, numbered by its first line. A record stops growing
+     * at {@value MAX_RECORD_LENGTH} characters, so an unterminated quote fails one record instead of reading
+     * the rest of the file into it.
+     */
+    private static final class LineReader {
+
+        private static final int MAX_RECORD_LENGTH = 65_536;
+        private final BufferedReader reader;
+        private final boolean quotedLineBreaks;
+        private long number;
+
+        private LineReader(BufferedReader reader, boolean quotedLineBreaks) {
+            this.reader = reader;
+            this.quotedLineBreaks = quotedLineBreaks;
+        }
+
+        private Line next() {
+            try {
+                String text;
+                do {
+                    text = reader.readLine();
+                    number++;
+                } while (text != null && text.isBlank());
+                if (text == null) {
+                    return null;
+                }
+                long first = number;
+                return new Line(first, quotedLineBreaks ? joinQuoted(text) : text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Doubled quotes inside a quoted field do not change the parity of the count of quotes.
+         */
+        private String joinQuoted(String text) throws IOException {
+            long quotes = quotesIn(text);
+            if (quotes % 2 == 0) {
+                return text;
+            }
+            StringBuilder record = new StringBuilder(text);
+            String next;
+            while (quotes % 2 == 1 && record.length() < MAX_RECORD_LENGTH && (next = reader.readLine()) != null) {
+                number++;
+                record.append('\n').append(next);
+                quotes += quotesIn(next);
+            }
+            return record.toString();
+        }
+
+        private static long quotesIn(@NotNull String text) {
+            return text.chars().filter(c -> c == '"').count();
+        }
+
+        private void skip(long rows) {
+            long row = 0;
+            while (row < rows && next() != null) {
+                row++;
+            }
+        }
+
+        private @NotNull List<Line> chunk(int size) {
+            List<Line> lines = new ArrayList<>(size);
+            Line line;
+            while (lines.size() < size && (line = next()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.hetacz.productmanager.importer;
+
+/**
+ * @param line    Line of the imported file, starting from 1.
+ * @param message Why the row was not imported.
+ */
+public record RowError(long line, String message) {
+
+}
@@ -0,0 +1,143 @@
+package com.hetacz.productmanager.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hetacz.productmanager.product.ProductDto;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses a record of an imported catalog into a product, throwing {@link IllegalArgumentException}
+ * for malformed records. Parsers are stateless and used from several threads at once.
+ */
+@FunctionalInterface
+public interface RowParser {
+
+    String NAME = "name";
+    String DESCRIPTION = "description";
+    String PRICE = "price";
+    String CATEGORIES = "categories";
+
+    ProductDto parse(String line);
+
+    /**
+     * Each line is a JSON object, a {@code null} line is rejected like any other malformed one.
+     */
+    @Contract(pure = true)
+    static @NotNull RowParser ndjson(ObjectMapper mapper) {
+        return line -> {
+            ProductDto product;
+            try {
+                product = mapper.readValue(line, ProductDto.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(e.getOriginalMessage(), e);
+            }
+            if (product == null) {
+                throw new IllegalArgumentException("Expected a JSON object, found null");
+            }
+            return product;
+        };
+    }
+
+    /**
+     * Quoted fields may contain commas, doubled quotes and line breaks, records spanning lines are joined by the
+     * reader. Categories are separated by {@code |}, a {@code |} or {@code \\} inside a name is escaped with
+     * {@code \\}.
+     *
+     * @param header First line of the file, naming the columns in any order, {@code categories} is optional.
+     */
+    static @NotNull RowParser csv(String header) {
+        List<String> columns = split(header).stream().map(column -> column.trim().toLowerCase(Locale.ROOT)).toList();
+        int name = indexOf(columns, NAME);
+        int description = indexOf(columns, DESCRIPTION);
+        int price = indexOf(columns, PRICE);
+        int categories = columns.indexOf(CATEGORIES);
+        return line -> {
+            List<String> fields = split(line);
+            if (fields.size() != columns.size()) {
+                throw new IllegalArgumentException("Expected %d fields, found %d".formatted(columns.size(),
+                        fields.size()));
+            }
+            return new ProductDto(fields.get(name), fields.get(description), parsePrice(fields.get(price)),
+                    categories < 0 ? null : parseCategories(fields.get(categories)));
+        };
+    }
+
+    private static int indexOf(@NotNull List<String> columns, String column) {
+        int index = columns.indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("Missing column: " + column);
+        }
+        return index;
+    }
+
+    private static Long parsePrice(@NotNull String price) {
+        if (price.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(price.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Price is not a number: " + price, e);
+        }
+    }
+
+    private static List<String> parseCategories(@NotNull String categories) {
+        if (categories.isBlank()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < categories.length(); i++) {
+            char c = categories.charAt(i);
+            if (c == '\\' && i + 1 < categories.length()) {
+                name.append(categories.charAt(++i));
+            } else if (c == '|') {
+                names.add(name.toString());
+                name.setLength(0);
+            } else {
+                name.append(c);
+            }
+        }
+        names.add(name.toString());
+        return names.stream()
+                .map(String::trim)
+                .filter(category -> !category.isEmpty())
+                .toList();
+    }
+
+    private static @NotNull List<String> split(@NotNull String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append(c);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
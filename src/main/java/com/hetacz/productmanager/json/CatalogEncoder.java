@@ -0,0 +1,211 @@
+package com.hetacz.productmanager.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hetacz.productmanager.category.Category;
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductField;
+import com.hetacz.productmanager.product.ProductView;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes products and categories as JSON.
+ * Encoded bytes of a product are cached by id and modification time, so a product is formatted once
+ * per change and list responses are mostly concatenated cached bytes.
+ * A product is encoded without its categories, which are appended when needed,
+ * as renaming a category does not change the modification time of its products.
+ * Memory of the cache is bounded by the total number of cached bytes.
+ * Rendering of whole responses is timed as {@code catalog.render}; encoding a single product is not,
+ * as streamed responses encode one per row.
+ */
+@Component
+public class CatalogEncoder {
+
+    private static final String RENDER = "catalog.render";
+    private static final String CACHE_NAME = "productJson";
+    private static final byte START_ARRAY = '[';
+    private static final byte END_ARRAY = ']';
+    private static final byte END_OBJECT = '}';
+    private static final byte COMMA = ',';
+    private static final byte[] CATEGORIES_FIELD = ",\"categories\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRODUCTS_FIELD = ",\"products\":".getBytes(StandardCharsets.UTF_8);
+    private final ObjectMapper objectMapper;
+    private final Cache<ProductKey, byte[]> products;
+
+    public CatalogEncoder(ObjectMapper objectMapper, MeterRegistry registry,
+            @Value("${productmanager.json-cache.max-bytes:67108864}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.products = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<ProductKey, byte[]>weigher((key, bytes) -> bytes.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, products, CACHE_NAME);
+    }
+
+    /**
+     * Not timed, called once per row of streamed responses.
+     *
+     * @return Product without categories, from the cache if it was not modified since it was encoded.
+     */
+    public byte[] encode(@NotNull Product product) {
+        return products.get(new ProductKey(product.getId(), product.getModified()), key -> encodeFields(product));
+    }
+
+    /**
+     * @return Product with ids and names of its categories, which must be initialized.
+     */
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encodeWithCategories(@NotNull Product product) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        appendField(out, encode(product), CATEGORIES_FIELD, encodeValue(categoryRefs(product.getCategories())));
+        return out.toByteArray();
+    }
+
+    /**
+     * @return Category with its products, which must be initialized.
+     */
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encode(@NotNull Category category) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        appendField(out, encodeValue(categoryRef(category)), PRODUCTS_FIELD, encodeProducts(category.getProducts()));
+        return out.toByteArray();
+    }
+
+    /**
+     * @return Category without its products.
+     */
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encodeSummary(@NotNull Category category) {
+        return encodeValue(categoryRef(category));
+    }
+
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encodeCategories(@NotNull Collection<Category> categories) {
+        return encodeArray(categories.stream().map(this::encode).toList());
+    }
+
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encodeProducts(@NotNull Collection<Product> products) {
+        return encodeArray(products.stream().map(this::encode).toList());
+    }
+
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encode(@NotNull ProductView view) {
+        return encodeValue(toMap(view));
+    }
+
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encodeViews(@NotNull Collection<ProductView> views) {
+        return encodeValue(views.stream().map(CatalogEncoder::toMap).toList());
+    }
+
+    /**
+     * Encodes any other value with the application object mapper.
+     */
+    @Timed(value = RENDER, histogram = true)
+    public byte[] encodeValue(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the elements as a JSON array.
+     */
+    public static void writeArray(@NotNull OutputStream out, @NotNull Collection<byte[]> elements) throws IOException {
+        out.write(START_ARRAY);
+        boolean first = true;
+        for (byte[] element : elements) {
+            if (!first) {
+                out.write(COMMA);
+            }
+            out.write(element);
+            first = false;
+        }
+        out.write(END_ARRAY);
+    }
+
+    private static byte[] encodeArray(@NotNull List<byte[]> elements) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(elements.stream().mapToInt(bytes -> bytes.length + 1)
+                .sum() + 1);
+        try {
+            writeArray(out, elements);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Appends a field to an encoded object, by replacing its closing brace.
+     */
+    private static void appendField(@NotNull ByteArrayOutputStream out, byte[] object, byte[] field,
+            byte[] value) {
+        out.write(object, 0, object.length - 1);
+        out.writeBytes(field);
+        out.writeBytes(value);
+        out.write(END_OBJECT);
+    }
+
+    private byte[] encodeFields(@NotNull Product product) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeObjectField(ProductField.ID.getAttribute(), product.getId());
+            generator.writeStringField(ProductField.NAME.getAttribute(), product.getName());
+            generator.writeStringField(ProductField.DESCRIPTION.getAttribute(), product.getDescription());
+            generator.writeObjectField(ProductField.PRICE.getAttribute(), product.getPrice());
+            generator.writeObjectField(ProductField.CREATED.getAttribute(), product.getCreated());
+            generator.writeObjectField(ProductField.MODIFIED.getAttribute(), product.getModified());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static @NotNull Map<String, Object> toMap(@NotNull ProductView view) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        view.values().forEach((field, value) -> values.put(field.getAttribute(),
+                field == ProductField.CATEGORIES && value instanceof Collection<?> categories
+                        ? categoryRefs(categories.stream().map(Category.class::cast).toList())
+                        : value));
+        return values;
+    }
+
+    private static @NotNull List<Map<String, Object>> categoryRefs(@NotNull Collection<Category> categories) {
+        return categories.stream().map(CatalogEncoder::categoryRef).toList();
+    }
+
+    private static @NotNull Map<String, Object> categoryRef(@NotNull Category category) {
+        Map<String, Object> ref = new LinkedHashMap<>();
+        ref.put("id", category.getId());
+        ref.put("name", category.getName());
+        return ref;
+    }
+
+    private record ProductKey(Long id, LocalDateTime modified) {
+
+    }
+}
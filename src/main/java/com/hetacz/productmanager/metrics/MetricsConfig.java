@@ -0,0 +1,58 @@
+package com.hetacz.productmanager.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.http.HttpServletRequest;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.boot.actuate.metrics.data.RepositoryTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times methods of beans annotated with {@code @Timed}.
+ * Timers are tagged with the class and method, and with the endpoint of the request being handled,
+ * so time of a request can be split into service, repository and rendering time.
+ * Repository calls are timed by Spring Data as {@code spring.data.repository.invocations}, also tagged by endpoint,
+ * and queries are counted by Hibernate statistics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    static final String NONE = "none";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry, MetricsConfig::tags);
+    }
+
+    @Bean
+    public RepositoryTagsProvider repositoryTagsProvider() {
+        DefaultRepositoryTagsProvider defaults = new DefaultRepositoryTagsProvider();
+        return invocation -> Tags.of(defaults.repositoryTags(invocation)).and("endpoint", currentEndpoint());
+    }
+
+    private static @NotNull Tags tags(@NotNull ProceedingJoinPoint point) {
+        return Tags.of("class", point.getStaticPart().getSignature().getDeclaringType().getSimpleName(),
+                "method", point.getStaticPart().getSignature().getName(),
+                "endpoint", currentEndpoint());
+    }
+
+    /**
+     * @return Mapped pattern of the request handled by the current thread, e.g. {@code /api/products/{id}}.
+     */
+    static @NotNull String currentEndpoint() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern) {
+                return request.getMethod() + " " + pattern;
+            }
+        }
+        return NONE;
+    }
+}
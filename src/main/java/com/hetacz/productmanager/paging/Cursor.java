@@ -0,0 +1,50 @@
+package com.hetacz.productmanager.paging;
+
+import com.hetacz.productmanager.SortDir;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position: the value of the sort column and the id of the last row of a page.
+ * Sort column and direction are part of the cursor, so it cannot be replayed against a different ordering.
+ *
+ * @param sortBy  Name of the sorted attribute.
+ * @param sortDir Direction of the sort.
+ * @param value   String form of the sort attribute of the last row, null if that attribute was null.
+ * @param id      Id of the last row, used as a tie-breaker.
+ */
+public record Cursor(String sortBy, SortDir sortDir, @Nullable String value, Long id) {
+
+    private static final String SEPARATOR = "\n";
+    private static final String VALUE = "v";
+    private static final String NULL = "n";
+    private static final String INVALID_CURSOR = "Cursor: %s is not valid";
+
+    @Contract("_ -> new")
+    public static @NotNull Cursor decode(@NotNull String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 4);
+            String value = parts[3].startsWith(VALUE) ? parts[3].substring(1) : null;
+            if (value == null && !NULL.equals(parts[3])) {
+                throw new IllegalArgumentException(INVALID_CURSOR.formatted(token));
+            }
+            return new Cursor(parts[0], SortDir.valueOf(parts[1]), value, Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(INVALID_CURSOR.formatted(token), e);
+        }
+    }
+
+    public @NotNull String encode() {
+        String raw = String.join(SEPARATOR, sortBy, sortDir.name(), id.toString(), value != null ? VALUE + value : NULL);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean matches(String sortBy, SortDir sortDir) {
+        return this.sortBy.equals(sortBy) && this.sortDir == sortDir;
+    }
+}
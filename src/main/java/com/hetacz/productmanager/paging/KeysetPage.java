@@ -0,0 +1,25 @@
+package com.hetacz.productmanager.paging;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Single page of a keyset scan.
+ *
+ * @param items      Rows of the page, in sort order.
+ * @param nextCursor Encoded cursor of the next page, null if this is the last one.
+ */
+public record KeysetPage<T>(List<T> items, @Nullable String nextCursor) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public <R> KeysetPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new KeysetPage<>(items.stream().<R>map(mapper).toList(), nextCursor);
+    }
+}
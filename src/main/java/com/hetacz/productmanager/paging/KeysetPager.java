@@ -0,0 +1,249 @@
+package com.hetacz.productmanager.paging;
+
+import com.hetacz.productmanager.SortDir;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Fetches pages of entities with keyset (seek) pagination.
+ * Every page is a single query ordered by the sort attribute and id, limited to one row more than requested,
+ * so its cost does not depend on how deep the cursor is.
+ */
+@Component
+public class KeysetPager {
+
+    private static final String ID = "id";
+    private static final String CURSOR_MISMATCH = "Cursor was issued for sort: %s %s, not for: %s %s";
+    private static final String LIMIT_INVALID = "Limit must be positive, was: %d";
+    private final int defaultLimit;
+    private final int maxLimit;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Contract(pure = true)
+    public KeysetPager(@Value("${productmanager.paging.default-limit:100}") int defaultLimit,
+            @Value("${productmanager.paging.max-limit:1000}") int maxLimit) {
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Fetches a page of entities matching the specification.
+     *
+     * @param type          Entity class.
+     * @param specification Filter, may be null.
+     * @param sortBy        Sorted attribute, id if null.
+     * @param sortDir       Sort direction, ascending if null.
+     * @param cursor        Encoded cursor returned with a previous page, null for the first page.
+     * @param limit         Page size, default if null and capped at the configured maximum.
+     * @return Page of entities with the cursor of the next page.
+     */
+    public <T> @NotNull KeysetPage<T> fetch(Class<T> type, @Nullable Specification<T> specification,
+            @Nullable String sortBy, @Nullable SortDir sortDir, @Nullable String cursor, @Nullable Integer limit) {
+        String field = sortBy != null ? sortBy : ID;
+        SortDir direction = sortDir != null ? sortDir : SortDir.ASC;
+        int size = resolveLimit(limit);
+        List<T> rows = query(type, seek(specification, cursor, field, direction), createSort(field, direction),
+                size + 1);
+        return toPage(rows, size, field, direction,
+                (row, attribute) -> PropertyAccessorFactory.forBeanPropertyAccess(row).getPropertyValue(attribute));
+    }
+
+    /**
+     * Fetches a page of selected attributes only, without hydrating managed entities.
+     * Id and the sorted attribute are always selected, as the cursor is built from them.
+     *
+     * @param attributes Attributes to select, each available in the tuple under its own name as alias.
+     * @return Page of tuples with the cursor of the next page.
+     * @see #fetch(Class, Specification, String, SortDir, String, Integer)
+     */
+    public <T> @NotNull KeysetPage<Tuple> fetchTuples(Class<T> type, @Nullable Specification<T> specification,
+            @NotNull Collection<String> attributes, @Nullable String sortBy, @Nullable SortDir sortDir,
+            @Nullable String cursor, @Nullable Integer limit) {
+        String field = sortBy != null ? sortBy : ID;
+        SortDir direction = sortDir != null ? sortDir : SortDir.ASC;
+        int size = resolveLimit(limit);
+        Set<String> selected = new LinkedHashSet<>(attributes);
+        selected.add(ID);
+        selected.add(field);
+        List<Tuple> rows = select(type, seek(specification, cursor, field, direction), selected,
+                createSort(field, direction), size + 1);
+        return toPage(rows, size, field, direction, (row, attribute) -> row.get(attribute));
+    }
+
+    /**
+     * Selects the given attributes of entities matching the specification.
+     *
+     * @param specification Filter, may be null.
+     * @param attributes    Attributes to select, each available in the tuple under its own name as alias.
+     * @param sort          Order of the rows.
+     * @param maxResults    Maximum number of rows.
+     * @return Selected rows.
+     */
+    public <T> List<Tuple> select(Class<T> type, @Nullable Specification<T> specification,
+            @NotNull Collection<String> attributes, Sort sort, int maxResults) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(type);
+        Predicate predicate = Specification.where(specification).toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.multiselect(attributes.stream().<Selection<?>>map(attribute -> root.get(attribute).alias(attribute))
+                        .toList())
+                .orderBy(QueryUtils.toOrders(sort, root, builder));
+        return entityManager.createQuery(query).setMaxResults(maxResults).getResultList();
+    }
+
+    /**
+     * Streams all entities matching the specification, ordered by the sorted attribute and id.
+     * Rows are fetched from an open cursor and loaded read-only, the stream must be consumed in a transaction
+     * and closed.
+     *
+     * @param fetchSize Number of rows fetched from the database at once.
+     * @return Entities in sort order.
+     */
+    public <T> Stream<T> stream(Class<T> type, @Nullable Specification<T> specification, @Nullable String sortBy,
+            @Nullable SortDir sortDir, int fetchSize) {
+        Sort sort = createSort(sortBy != null ? sortBy : ID, sortDir != null ? sortDir : SortDir.ASC);
+        return createQuery(type, Specification.where(specification), sort)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    public int resolveLimit(@Nullable Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException(LIMIT_INVALID.formatted(limit));
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    @NotNull
+    private static Sort createSort(@NotNull String field, @NotNull SortDir direction) {
+        Sort sort = Sort.by(direction.toDirection(), field);
+        return ID.equals(field) ? sort : sort.and(Sort.by(direction.toDirection(), ID));
+    }
+
+    @NotNull
+    private static Cursor decode(String token, String field, SortDir direction) {
+        Cursor decoded = Cursor.decode(token);
+        if (!decoded.matches(field, direction)) {
+            throw new IllegalArgumentException(
+                    CURSOR_MISMATCH.formatted(decoded.sortBy(), decoded.sortDir(), field, direction));
+        }
+        return decoded;
+    }
+
+    @NotNull
+    private static <R> KeysetPage<R> toPage(@NotNull List<R> rows, int size, String field, SortDir direction,
+            BiFunction<R, String, Object> accessor) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<R> items = rows.subList(0, size);
+        R last = items.get(size - 1);
+        Object value = accessor.apply(last, field);
+        Cursor cursor = new Cursor(field, direction, value != null ? value.toString() : null,
+                (Long) accessor.apply(last, ID));
+        return new KeysetPage<>(items, cursor.encode());
+    }
+
+    @NotNull
+    private static <T> Specification<T> seek(@Nullable Specification<T> specification, @Nullable String cursor,
+            String field, SortDir direction) {
+        Specification<T> filter = Specification.where(specification);
+        return cursor != null ? filter.and(after(decode(cursor, field, direction))) : filter;
+    }
+
+    /**
+     * Rows strictly after the cursor in (attribute, id) order.
+     * Nulls sort first ascending and last descending, which is what MySQL and H2 do by default.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Contract(pure = true)
+    private static <T> @NotNull Specification<T> after(@NotNull Cursor cursor) {
+        return (root, query, builder) -> {
+            boolean ascending = cursor.sortDir() == SortDir.ASC;
+            Path<Long> id = root.get(ID);
+            Predicate idAfter = ascending ? builder.greaterThan(id, cursor.id()) : builder.lessThan(id, cursor.id());
+            if (ID.equals(cursor.sortBy())) {
+                return idAfter;
+            }
+            Path<Comparable> path = root.get(cursor.sortBy());
+            if (cursor.value() == null) {
+                return ascending
+                        ? builder.or(builder.and(builder.isNull(path), idAfter), builder.isNotNull(path))
+                        : builder.and(builder.isNull(path), idAfter);
+            }
+            Comparable value = toAttributeType(cursor.value(), path.getJavaType());
+            Predicate beyond = ascending ? builder.greaterThan(path, value) : builder.lessThan(path, value);
+            Predicate tie = builder.and(builder.equal(path, value), idAfter);
+            return ascending ? builder.or(beyond, tie) : builder.or(beyond, tie, builder.isNull(path));
+        };
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Comparable toAttributeType(String value, Class<?> type) {
+        if (Long.class.equals(type) || long.class.equals(type)) {
+            return Long.valueOf(value);
+        }
+        if (Integer.class.equals(type) || int.class.equals(type)) {
+            return Integer.valueOf(value);
+        }
+        if (LocalDateTime.class.equals(type)) {
+            try {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        return value;
+    }
+
+    private <T> List<T> query(Class<T> type, @NotNull Specification<T> specification, Sort sort, int maxResults) {
+        return createQuery(type, specification, sort).setMaxResults(maxResults).getResultList();
+    }
+
+    private <T> TypedQuery<T> createQuery(Class<T> type, @NotNull Specification<T> specification, Sort sort) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(type);
+        Root<T> root = query.from(type);
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(QueryUtils.toOrders(sort, root, builder));
+        return entityManager.createQuery(query);
+    }
+}
@@ -0,0 +1,16 @@
+package com.hetacz.productmanager.product;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk delete.
+ *
+ * @param deleted Ids that existed and were deleted.
+ * @param missing Requested ids that did not exist.
+ */
+public record DeletionResult(List<Long> deleted, List<Long> missing) {
+
+    public boolean isEmpty() {
+        return deleted.isEmpty();
+    }
+}
@@ -9,11 +9,13 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.Hibernate;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -22,8 +24,19 @@ import java.util.TreeSet;
 @Getter
 @ToString
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
+@NamedEntityGraph(name = Product.WITH_CATEGORIES, attributeNodes = @NamedAttributeNode("categories"))
+@Table(indexes = {
+        @Index(name = "IDX_PRODUCT_NAME_ID", columnList = "name, id"),
+        @Index(name = "IDX_PRODUCT_PRICE_ID", columnList = "price, id"),
+        @Index(name = "IDX_PRODUCT_CREATED_ID", columnList = "created, id"),
+        @Index(name = "IDX_PRODUCT_MODIFIED_ID", columnList = "modified, id")
+})
 public class Product implements Serializable, Comparable<Product> {
 
+    public static final String WITH_CATEGORIES = "Product.categories";
+    // same sequence the implicit generator used, with a larger pool for bulk inserts
+    private static final String ID_GENERATOR = "Product_SEQ";
+
     @ToString.Exclude
     @ManyToMany
     @JoinTable(name = "PRODUCT_CATEGORIES",
@@ -34,7 +47,8 @@ public class Product implements Serializable, Comparable<Product> {
     @ToString.Include(rank = -1)
     private final LocalDateTime created = LocalDateTime.now();
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_GENERATOR)
+    @SequenceGenerator(name = ID_GENERATOR, sequenceName = ID_GENERATOR, allocationSize = 500)
     private Long id;
     @NotBlank
     private String name;
@@ -104,6 +118,18 @@ public class Product implements Serializable, Comparable<Product> {
         updateModified();
     }
 
+    /**
+     * Links categories on the owning side only. Inverse collections are updated only when already loaded,
+     * so adding to a big category does not fetch all of its products, and categories may be detached references.
+     */
+    public void linkCategories(@NotNull Collection<Category> categories) {
+        this.categories.addAll(categories);
+        categories.stream()
+                .filter(category -> Hibernate.isInitialized(category.getProducts()))
+                .forEach(category -> category.getProducts().add(this));
+        updateModified();
+    }
+
     public void deleteCategory(Category category) {
         this.categories.remove(category);
         category.getProducts().remove(this);
@@ -1,24 +1,37 @@
 package com.hetacz.productmanager.product;
 
 import com.hetacz.productmanager.SortDir;
+import com.hetacz.productmanager.cache.CatalogVersion;
+import com.hetacz.productmanager.exception.ErrorDetails;
+import com.hetacz.productmanager.json.CatalogEncoder;
+import com.hetacz.productmanager.paging.KeysetPage;
+import com.hetacz.productmanager.websocket.ReadBroadcast;
+import com.hetacz.productmanager.websocket.ReadBroadcaster;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -27,75 +40,158 @@ import java.util.stream.Stream;
 public class ProductController {
 
     private static final String BODY_INVALID = "Request body is not valid";
-    private static final String PRODUCT_ID_DELETED = "Product with ID: %d deleted";
-    private static final String PRODUCTS_IDS_DELETED = "Products with IDs: %s deleted";
+    private static final String URI_DETAILS = "uri=%s";
+    private static final String PRODUCT_TAG = "p%d-%s-%s";
+    private static final String PRODUCTS_TAG = "products";
+    private static final String FACETS_TAG = "facets";
+    private static final String FULL = "full";
     private static final String PRODUCT = "Product: {}";
     private static final String TOPIC_PRODUCT = "/topic/product/";
     private static final String PRODUCT_PRODUCT = "Get product by ID: %d, product: %s";
     private static final String ALL_PRODUCTS = "Get all products %s";
-    private static final String PRODUCTS = "Products: %s";
-    private static final String CREATE_PRODUCT = "Created product with ID: %d, product: %s";
+    private static final String PRODUCTS = "Products: {}";
     private static final String PRODUCT_ADDED = "Product: {} added: {}";
     private static final String PRODUCT_DELETED = "Product: {} deleted";
-    private static final String DELETE_PRODUCT = "Deleted product with ID: %d";
-    private static final String UPDATE_PRODUCT = "Updated product with ID: %d, new product: %s";
     private static final String PRODUCT_UPDATED = "Product: {} updated: {}";
+    private static final String FACETS = "Facets: {}";
+    private static final String STREAMED_PRODUCTS = "Streamed %d products";
     private final ProductService service;
     private final ProductRepository repository;
-    private final SimpMessagingTemplate template;
+    private final ReadBroadcaster broadcaster;
+    private final ProductStreamWriter writer;
+    private final CatalogEncoder encoder;
+    private final CatalogVersion catalogVersion;
 
     @Contract(pure = true)
-    public ProductController(ProductService service, ProductRepository repository, SimpMessagingTemplate template) {
+    public ProductController(ProductService service, ProductRepository repository, ReadBroadcaster broadcaster,
+            ProductStreamWriter writer, CatalogEncoder encoder, CatalogVersion catalogVersion) {
         this.service = service;
         this.repository = repository;
-        this.template = template;
+        this.broadcaster = broadcaster;
+        this.writer = writer;
+        this.encoder = encoder;
+        this.catalogVersion = catalogVersion;
     }
 
+    /**
+     * Answers 304 if the product was not modified and no category was changed since the tag was issued,
+     * checking only the modification time of the product.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<String> getProductById(@PathVariable Long id) {
-        Product product = repository.findById(id).orElseThrow();
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long id,
+            @RequestParam(required = false) String fields, WebRequest request) {
+        Set<ProductField> productFields = fields != null ? ProductField.parse(fields) : null;
+        LocalDateTime modified = service.findModifiedById(id);
+        CatalogVersion.Stamp categories = catalogVersion.categories();
+        long lastModified = Math.max(modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                categories.changed());
+        if (request.checkNotModified(categories.etag(productTag(id, modified, productFields)), lastModified)) {
+            return null;
+        }
+        if (productFields != null) {
+            ProductView view = service.findViewById(id, productFields);
+            getProduct(id, view);
+            log.info(PRODUCT, view);
+            return getJsonResponse(encoder.encode(view));
+        }
+        Product product = service.findById(id);
         getProduct(id, product);
         log.info(PRODUCT, product);
-        return ResponseEntity.ok().location(getSimpleUri()).body(product.toFullString());
+        return getJsonResponse(encoder.encodeWithCategories(product));
     }
 
     @GetMapping("/")
-    public ResponseEntity<String> getAllProducts() {
-        List<Product> products = repository.findAll(createSort("id", SortDir.ASC));
-        return getResponseEntity(products);
+    public ResponseEntity<byte[]> getAllProducts(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (isCatalogNotModified(request, PRODUCTS_TAG)) {
+            return null;
+        }
+        return fields != null
+                ? getResponseEntity(service.findViewPage(ProductField.parse(fields), null, null, cursor, limit),
+                        encoder::encodeViews)
+                : getResponseEntity(service.findPage(null, null, cursor, limit), encoder::encodeProducts);
+    }
+
+    @GetMapping(value = "/", params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(@RequestParam StreamFormat stream) {
+        return getStreamingResponseEntity(stream, consumer -> service.forEachBySpecification(null, null, null, null,
+                null, null, null, null, null, consumer));
     }
 
     @GetMapping("/specific")
-    public ResponseEntity<String> getAllProductsByCategory(
+    public ResponseEntity<byte[]> getAllProductsByCategory(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String description, @RequestParam(required = false) Long min,
             @RequestParam(required = false) Long max, @RequestParam(required = false) LocalDateTime before,
             @RequestParam(required = false) LocalDateTime after,
             @RequestParam(required = false) List<String> categories, @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) SortDir sortDir
+            @RequestParam(required = false) SortDir sortDir, @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String fields,
+            WebRequest request
     ) {
-        Sort sort = createSort(sortBy, sortDir);
+        if (isCatalogNotModified(request, PRODUCTS_TAG)) {
+            return null;
+        }
         boolean allNull = Stream.of(name, description, min, max, before, after, categories)
                 .allMatch(Objects::isNull);
-        Supplier<List<Product>> fetcher = () -> allNull
-                ? repository.findAll(sort)
-                : service.findBySpecification(name, description, min, max, before, after, categories, sort);
-        return getResponseEntity(fetcher.get());
+        if (fields != null) {
+            Set<ProductField> productFields = ProductField.parse(fields);
+            Supplier<KeysetPage<ProductView>> fetcher = () -> allNull
+                    ? service.findViewPage(productFields, sortBy, sortDir, cursor, limit)
+                    : service.findViewPageBySpecification(name, description, min, max, before, after, categories,
+                            productFields, sortBy, sortDir, cursor, limit);
+            return getResponseEntity(fetcher.get(), encoder::encodeViews);
+        }
+        Supplier<KeysetPage<Product>> fetcher = () -> allNull
+                ? service.findPage(sortBy, sortDir, cursor, limit)
+                : service.findPageBySpecification(name, description, min, max, before, after, categories, sortBy,
+                        sortDir, cursor, limit);
+        return getResponseEntity(fetcher.get(), encoder::encodeProducts);
+    }
+
+    @GetMapping(value = "/specific", params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamAllProductsByCategory(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String description, @RequestParam(required = false) Long min,
+            @RequestParam(required = false) Long max, @RequestParam(required = false) LocalDateTime before,
+            @RequestParam(required = false) LocalDateTime after,
+            @RequestParam(required = false) List<String> categories, @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) SortDir sortDir, @RequestParam StreamFormat stream
+    ) {
+        return getStreamingResponseEntity(stream, consumer -> service.forEachBySpecification(name, description, min,
+                max, before, after, categories, sortBy, sortDir, consumer));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<byte[]> getCategoryFacets(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String description, @RequestParam(required = false) Long min,
+            @RequestParam(required = false) Long max, @RequestParam(required = false) LocalDateTime before,
+            @RequestParam(required = false) LocalDateTime after,
+            @RequestParam(required = false) List<String> categories, WebRequest request
+    ) {
+        if (isCatalogNotModified(request, FACETS_TAG)) {
+            return null;
+        }
+        SortedMap<String, Long> facets = service.findFacets(name, description, min, max, before, after, categories);
+        log.info(FACETS, facets);
+        return getJsonResponse(encoder.encodeValue(facets));
     }
 
     @PostMapping(value = "/", consumes = "application/json")
-    public ResponseEntity<String> addProduct(@RequestBody @Valid ProductDto productDto, @NotNull BindingResult result) {
+    public ResponseEntity<byte[]> addProduct(@RequestBody @Valid ProductDto productDto, @NotNull BindingResult result) {
         if (result.hasErrors()) {
             return reposneIsInvalid();
         }
         Product product = service.addProduct(productDto);
         productCreated(product);
         URI location = getLongUri(product);
-        return ResponseEntity.created(location).body(product.toString());
+        return ResponseEntity.created(location).contentType(MediaType.APPLICATION_JSON).body(encoder.encode(product));
     }
 
     @PostMapping(value = "/batch", consumes = "application/json")
-    public ResponseEntity<String> addProducts(@RequestBody @Valid List<ProductDto> productDtos,
+    public ResponseEntity<byte[]> addProducts(@RequestBody @Valid List<ProductDto> productDtos,
             @NotNull BindingResult result) {
         if (result.hasErrors()) {
             return reposneIsInvalid();
@@ -105,62 +201,54 @@ public class ProductController {
         List<String> locations = products.stream()
                 .map(product -> "/api/products/%d".formatted(product.getId()))
                 .toList();
-        return new ResponseEntity<>(locations.toString(), HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(encoder.encodeValue(locations));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteProduct(@PathVariable Long id) {
-        if (repository.findById(id).isEmpty()) {
+    public ResponseEntity<byte[]> deleteProduct(@PathVariable Long id) {
+        if (!repository.existsById(id)) {
             return responseNotFound();
         }
         service.deleteProduct(id);
         productDeleted(id);
-        URI location = getSimpleUri();
-        return getOKResponseWithBody(id, location);
+        return getJsonResponse(encoder.encodeValue(new DeletionResult(List.of(id), List.of())));
     }
 
     @DeleteMapping("/batch")
-    public ResponseEntity<String> deleteProducts(@RequestBody List<Long> ids) {
-        if (repository.findAllByIdIn(ids).isEmpty()) {
+    public ResponseEntity<byte[]> deleteProducts(@RequestBody List<Long> ids) {
+        DeletionResult result = service.deleteProducts(ids);
+        if (result.isEmpty()) {
             return responseNotFound();
         }
-        List<Long> idsToDelete = repository.findAllByIdIn(ids).stream().map(Product::getId).toList();
-        service.deleteProducts(idsToDelete);
-        idsToDelete.forEach(this::productDeleted);
-        return getOKResponseWithBody(idsToDelete);
+        result.deleted().forEach(this::productDeleted);
+        return getJsonResponse(encoder.encodeValue(result));
     }
 
     // no validation of dto as invalid as not updated
     @PutMapping(value = "/{id}", consumes = "application/json")
-    public ResponseEntity<String> updateProduct(@PathVariable Long id, @RequestBody ProductDto productDto) {
+    public ResponseEntity<byte[]> updateProduct(@PathVariable Long id, @RequestBody ProductDto productDto) {
         if (repository.findById(id).isEmpty()) {
             return responseNotFound();
         }
         Product product = service.updateProduct(id, productDto);
         updatedProduct(id, product);
-        URI location = getSimpleUri();
-        return getSimpleBodyResponse(location, product);
+        return getJsonResponse(encoder.encode(product));
     }
 
     @PatchMapping("/{id}/clear-categories")
-    public ResponseEntity<String> deleteProductsCategories(@PathVariable Long id) {
-        Optional<Product> product = repository.findById(id);
-        if (product.isEmpty()) {
+    public ResponseEntity<byte[]> deleteProductsCategories(@PathVariable Long id) {
+        if (!repository.existsById(id)) {
             return responseNotFound();
         }
-        service.clearCategoriesOfProduct(id);
-        updatedProduct(id, product.get());
-        return ResponseEntity.ok().location(getSimpleUri()).body(product.get().toFullString());
-    }
-
-    private @NotNull Sort createSort(String sortBy, SortDir sortDir) {
-        String field = (sortBy != null) ? sortBy : "id";
-        Sort.Direction direction = (sortDir != null) ? sortDir.toDirection() : Sort.Direction.ASC;
-        return Sort.by(direction, field);
+        Product product = service.clearCategoriesOfProduct(id);
+        updatedProduct(id, product);
+        return getJsonResponse(encoder.encodeWithCategories(product));
     }
 
     @NotNull
-    private ResponseEntity<String> responseNotFound() {
+    private ResponseEntity<byte[]> responseNotFound() {
         return ResponseEntity.notFound().build();
     }
 
@@ -170,13 +258,10 @@ public class ProductController {
     }
 
     @NotNull
-    private ResponseEntity<String> reposneIsInvalid() {
-        return ResponseEntity.badRequest().body(BODY_INVALID);
-    }
-
-    @NotNull
-    private ResponseEntity<String> getOKResponseWithBody(Long id, URI location) {
-        return ResponseEntity.ok().location(location).body(PRODUCT_ID_DELETED.formatted(id));
+    private ResponseEntity<byte[]> reposneIsInvalid() {
+        ErrorDetails details = new ErrorDetails(LocalDateTime.now(), BODY_INVALID, URI_DETAILS.formatted(
+                ServletUriComponentsBuilder.fromCurrentRequest().build().getPath()));
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(encoder.encodeValue(details));
     }
 
     @NotNull
@@ -184,40 +269,73 @@ public class ProductController {
         return ServletUriComponentsBuilder.fromCurrentRequest().build().toUri();
     }
 
+    /**
+     * Lists change with any write, so they are validated by the catalog version, without querying the database.
+     */
+    private boolean isCatalogNotModified(@NotNull WebRequest request, String tag) {
+        CatalogVersion.Stamp catalog = catalogVersion.catalog();
+        return request.checkNotModified(catalog.etag(tag), catalog.changed());
+    }
+
     @NotNull
-    private ResponseEntity<String> getOKResponseWithBody(List<Long> idsToDelete) {
-        return ResponseEntity.ok().body(PRODUCTS_IDS_DELETED.formatted(idsToDelete));
+    private static String productTag(Long id, @NotNull LocalDateTime modified, Set<ProductField> fields) {
+        String representation = fields == null
+                ? FULL
+                : fields.stream().map(ProductField::getAttribute).collect(Collectors.joining("."));
+        return PRODUCT_TAG.formatted(id, modified.toString(), representation);
     }
 
     @NotNull
-    private ResponseEntity<String> getSimpleBodyResponse(URI location, @NotNull Product product) {
-        return ResponseEntity.ok().location(location).body(product.toString());
+    private ResponseEntity<byte[]> getJsonResponse(byte[] body) {
+        return ResponseEntity.ok().location(getSimpleUri()).contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
-    private void getProduct(Long id, Product product) {
-        template.convertAndSend(TOPIC_PRODUCT + id, PRODUCT_PRODUCT.formatted(id, product));
+    private void getProduct(Long id, Object product) {
+        broadcaster.broadcast(ReadBroadcast.PRODUCT, TOPIC_PRODUCT + id, () -> PRODUCT_PRODUCT.formatted(id, product));
     }
 
     @NotNull
-    private ResponseEntity<String> getResponseEntity(List<Product> products) {
-        template.convertAndSend(TOPIC_PRODUCT, ALL_PRODUCTS.formatted(products));
-        log.info(PRODUCTS.formatted(products.toString()));
+    private <T> ResponseEntity<byte[]> getResponseEntity(@NotNull KeysetPage<T> page,
+            @NotNull Function<List<T>, byte[]> encode) {
+        List<T> products = page.items();
+        broadcaster.broadcast(ReadBroadcast.PRODUCTS, TOPIC_PRODUCT, () -> ALL_PRODUCTS.formatted(products));
+        log.debug(PRODUCTS, products);
         URI location = getSimpleUri();
-        return ResponseEntity.ok().location(location).body(products.toString());
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().location(location)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (page.hasNext()) {
+            builder.header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return builder.body(encode.apply(products));
+    }
+
+    /**
+     * Products are written while they are read, only their number is sent to subscribers.
+     */
+    @NotNull
+    private ResponseEntity<StreamingResponseBody> getStreamingResponseEntity(StreamFormat format,
+            ToLongFunction<Consumer<? super Product>> source) {
+        StreamingResponseBody body = outputStream -> {
+            long count = writer.write(outputStream, format, source);
+            broadcaster.broadcast(ReadBroadcast.PRODUCT_STREAM, TOPIC_PRODUCT,
+                    () -> STREAMED_PRODUCTS.formatted(count));
+            log.info(STREAMED_PRODUCTS.formatted(count));
+        };
+        return ResponseEntity.ok().location(getSimpleUri()).contentType(format.getMediaType()).body(body);
     }
 
+    /**
+     * Subscribers are notified of writes by the change stream once they are committed.
+     */
     private void productCreated(@NotNull Product product) {
-        template.convertAndSend(TOPIC_PRODUCT + product.getId(), CREATE_PRODUCT.formatted(product.getId(), product));
         log.info(PRODUCT_ADDED, product.getId(), product);
     }
 
     private void productDeleted(Long id) {
-        template.convertAndSend(TOPIC_PRODUCT + id, DELETE_PRODUCT.formatted(id));
         log.info(PRODUCT_DELETED, id);
     }
 
     private void updatedProduct(Long id, Product product) {
-        template.convertAndSend(TOPIC_PRODUCT + id, UPDATE_PRODUCT.formatted(id, product));
         log.info(PRODUCT_UPDATED, id, product);
     }
 }
@@ -0,0 +1,64 @@
+package com.hetacz.productmanager.product;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Attributes of a product that can be requested with the fields parameter.
+ */
+@Getter
+public enum ProductField {
+    ID("id"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    PRICE("price"),
+    CREATED("created"),
+    MODIFIED("modified"),
+    CATEGORIES("categories");
+
+    private static final String UNKNOWN_FIELD = "Unknown product field: %s";
+    private static final String SEPARATOR = ",";
+    private final String attribute;
+
+    @Contract(pure = true)
+    ProductField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * Parses a comma separated list of attribute names. Id is always included.
+     *
+     * @param fields Comma separated attribute names, e.g. "name,price".
+     * @return Requested fields.
+     * @throws IllegalArgumentException if any of the names is not a product attribute.
+     */
+    public static @NotNull Set<ProductField> parse(@NotNull String fields) {
+        Set<ProductField> parsed = EnumSet.of(ID);
+        Arrays.stream(fields.split(SEPARATOR))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .map(ProductField::of)
+                .forEach(parsed::add);
+        return parsed;
+    }
+
+    public static @NotNull ProductField of(@NotNull String attribute) {
+        return Arrays.stream(values())
+                .filter(field -> field.attribute.equals(attribute.toLowerCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(UNKNOWN_FIELD.formatted(attribute)));
+    }
+
+    /**
+     * @return True if the field is a column of the product table, false if it needs a join.
+     */
+    public boolean isColumn() {
+        return this != CATEGORIES;
+    }
+}
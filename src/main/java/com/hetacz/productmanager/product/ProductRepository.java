@@ -1,15 +1,24 @@
 package com.hetacz.productmanager.product;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     Optional<Product> findByName(String name);
+    @EntityGraph(Product.WITH_CATEGORIES)
+    Optional<Product> findWithCategoriesById(Long id);
+    @EntityGraph(Product.WITH_CATEGORIES)
+    List<Product> findAllWithCategoriesByIdIn(Collection<Long> ids);
     List<Product> findAllByIdIn(List<Long> ids);
     List<Product> findAllByNameContaining(String name);
     List<Product> findAllByDescriptionContaining(String description);
@@ -18,4 +27,14 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     List<Product> findAllByCreatedBefore(LocalDateTime date);
     List<Product> findAllByCreatedAfter(LocalDateTime date);
     List<Product> findAllByCategories_Name(String name);
+    @Query("select p.modified from Product p where p.id = :id")
+    Optional<LocalDateTime> findModifiedById(@Param("id") Long id);
+    @Query("select p.id from Product p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM PRODUCT_CATEGORIES WHERE PRODUCT_ID IN (:ids)", nativeQuery = true)
+    int deleteCategoryLinksByProductIdIn(@Param("ids") Collection<Long> ids);
+    @Modifying
+    @Query("delete from Product p where p.id in :ids")
+    int deleteAllByIdInBulk(@Param("ids") Collection<Long> ids);
 }
@@ -1,37 +1,87 @@
 package com.hetacz.productmanager.product;
 
+import com.hetacz.productmanager.SortDir;
+import com.hetacz.productmanager.cache.CatalogCaches;
+import com.hetacz.productmanager.cache.ProductQuery;
+import com.hetacz.productmanager.cache.ProductQueryCache;
 import com.hetacz.productmanager.category.Category;
-import com.hetacz.productmanager.category.CategoryRepository;
+import com.hetacz.productmanager.category.CategoryResolver;
+import com.hetacz.productmanager.paging.KeysetPage;
+import com.hetacz.productmanager.paging.KeysetPager;
+import com.hetacz.productmanager.search.CategoryFacetIndex;
+import com.hetacz.productmanager.search.ProductTextIndex;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
+@Timed(value = "catalog.service", histogram = true)
 public class ProductService {
 
     // todo adding when no categories need to be added from context.
     private static final String OTHER = "Other";
     private static final String NOT_FOUND = "Product with id: %d not found.";
-    private static final String NO_PRODUCTS = "No products with ids: %s found.";
+    private static final int DELETE_CHUNK = 1000;
+    private static final int STREAM_CHUNK = 1000;
+    private static final String ID = "id";
+    private static final String PAGE_ORDER = "%s %s after %s limit %d";
     private final ProductRepository productRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryResolver categoryResolver;
+    private final KeysetPager pager;
+    private final ProductTextIndex textIndex;
+    private final CategoryFacetIndex facetIndex;
+    private final ProductQueryCache queryCache;
+    private final CatalogCaches catalogCaches;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Contract(pure = true)
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public ProductService(ProductRepository productRepository, CategoryResolver categoryResolver,
+            KeysetPager pager, ProductTextIndex textIndex, CategoryFacetIndex facetIndex,
+            ProductQueryCache queryCache, CatalogCaches catalogCaches, ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager) {
         this.productRepository = productRepository;
-        this.categoryRepository = categoryRepository;
+        this.categoryResolver = categoryResolver;
+        this.pager = pager;
+        this.textIndex = textIndex;
+        this.facetIndex = facetIndex;
+        this.queryCache = queryCache;
+        this.catalogCaches = catalogCaches;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public List<Product> findAll() {
@@ -42,6 +92,28 @@ public class ProductService {
         return productRepository.findAll(sort);
     }
 
+    /**
+     * Finds a product together with its categories in a single query,
+     * so it can be rendered after the persistence context is closed.
+     * Cached outside of transactions, the cached product is shared and must not be modified.
+     *
+     * @param id The id of the product.
+     * @return The product with initialized categories.
+     * @throws java.util.NoSuchElementException if there is no product with the given id.
+     */
+    public Product findById(Long id) {
+        return catalogCaches.product(id, () -> productRepository.findWithCategoriesById(id).orElseThrow());
+    }
+
+    /**
+     * Finds the modification time of a product without loading it, used to validate cached representations.
+     *
+     * @throws java.util.NoSuchElementException if there is no product with the given id.
+     */
+    public LocalDateTime findModifiedById(Long id) {
+        return productRepository.findModifiedById(id).orElseThrow();
+    }
+
     public List<Product> findBySpecification(Specification<Product> specification) {
         return productRepository.findAll(specification);
     }
@@ -50,132 +122,401 @@ public class ProductService {
         return productRepository.findAll(specification, sort);
     }
 
+    /**
+     * Finds products matching all non-null filters.
+     * Ids of the result are cached until the next write, a repeated query only loads products by id.
+     */
     public List<Product> findBySpecification(String name, String description, Long min, Long max,
             LocalDateTime createdBefore, LocalDateTime createdAfter, Collection<String> categoryNames, Sort sort) {
-        Specification<Product> specification = Stream.of(
-                        categoryNames == null || categoryNames.isEmpty()
-                                ? null
-                                : Specification.anyOf(categoryNames.stream()
-                                        .map(ProductSpecification::hasCategoryName)
-                                        .collect(Collectors.toSet())),
-                        nullCheck(ProductSpecification.hasNameLike(name), name),
-                        nullCheck(ProductSpecification.hasDescriptionLike(description), description),
-                        nullCheck(ProductSpecification.hasPriceLessOrEqualThan(max), max),
-                        nullCheck(ProductSpecification.hasPriceGreaterOrEqualThan(min), min),
-                        nullCheck(ProductSpecification.wasCreatedBefore(createdBefore), createdBefore),
-                        nullCheck(ProductSpecification.wasCreatedAfter(createdAfter), createdAfter))
-                .filter(Objects::nonNull)
-                .reduce(Specification::and)
-                .orElse(null);
-        return findProducts(specification, sort);
+        ProductQuery query = ProductQuery.of(name, description, min, max, createdBefore, createdAfter,
+                categoryNames, String.valueOf(sort), queryCache.version());
+        Optional<KeysetPage<Long>> cached = queryCache.find(query);
+        if (cached.isPresent()) {
+            return findAllInOrder(cached.get().items());
+        }
+        Specification<Product> specification = createSpecification(name, description, min, max, createdBefore,
+                createdAfter, categoryNames);
+        List<Product> products = findProducts(specification, sort);
+        queryCache.put(query, new KeysetPage<>(products.stream().map(Product::getId).toList(), null));
+        return products;
+    }
+
+    /**
+     * Finds a single page of products, ordered by the given attribute and id.
+     *
+     * @param sortBy  Sorted attribute, id if null.
+     * @param sortDir Sort direction, ascending if null.
+     * @param cursor  Cursor returned with the previous page, null for the first page.
+     * @param limit   Page size, default if null.
+     * @return Page of products with the cursor of the next page.
+     */
+    public KeysetPage<Product> findPage(String sortBy, SortDir sortDir, String cursor, Integer limit) {
+        return pager.fetch(Product.class, null, sortBy, sortDir, cursor, limit);
+    }
+
+    /**
+     * Finds a single page of products matching all non-null filters, ordered by the given attribute and id.
+     * Cost of a page does not depend on how far the cursor is into the result.
+     * Ids of the page are cached until the next write, a repeated query only loads products by id.
+     *
+     * @param cursor Cursor returned with the previous page, null for the first page.
+     * @param limit  Page size, default if null.
+     * @return Page of products with the cursor of the next page.
+     */
+    public KeysetPage<Product> findPageBySpecification(String name, String description, Long min, Long max,
+            LocalDateTime createdBefore, LocalDateTime createdAfter, Collection<String> categoryNames,
+            String sortBy, SortDir sortDir, String cursor, Integer limit) {
+        ProductQuery query = ProductQuery.of(name, description, min, max, createdBefore, createdAfter,
+                categoryNames, PAGE_ORDER.formatted(sortBy, sortDir, cursor, pager.resolveLimit(limit)),
+                queryCache.version());
+        Optional<KeysetPage<Long>> cached = queryCache.find(query);
+        if (cached.isPresent()) {
+            return new KeysetPage<>(findAllInOrder(cached.get().items()), cached.get().nextCursor());
+        }
+        Specification<Product> specification = createSpecification(name, description, min, max, createdBefore,
+                createdAfter, categoryNames);
+        KeysetPage<Product> page = pager.fetch(Product.class, specification, sortBy, sortDir, cursor, limit);
+        queryCache.put(query, page.map(Product::getId));
+        return page;
+    }
+
+    /**
+     * Passes every product matching all non-null filters to the consumer, ordered by the given attribute and id.
+     * Products are read from a database cursor and the persistence context is cleared every
+     * {@value #STREAM_CHUNK} products, so memory does not grow with the size of the result.
+     * Categories of the products are not loaded.
+     *
+     * @param consumer Receives products one by one, must not keep them.
+     * @return Number of products passed to the consumer.
+     */
+    @Transactional
+    public long forEachBySpecification(String name, String description, Long min, Long max,
+            LocalDateTime createdBefore, LocalDateTime createdAfter, Collection<String> categoryNames,
+            String sortBy, SortDir sortDir, Consumer<? super Product> consumer) {
+        Specification<Product> specification = createSpecification(name, description, min, max, createdBefore,
+                createdAfter, categoryNames);
+        long count = 0;
+        try (Stream<Product> products = pager.stream(Product.class, specification, sortBy, sortDir, STREAM_CHUNK)) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % STREAM_CHUNK == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds only the requested fields of a product.
+     * Unless categories are requested, this is a single projection query that loads no entity.
+     *
+     * @param id     The id of the product.
+     * @param fields Fields to return.
+     * @return View of the product with requested fields only.
+     * @throws java.util.NoSuchElementException if there is no product with the given id.
+     */
+    public ProductView findViewById(Long id, @NotNull Set<ProductField> fields) {
+        if (fields.contains(ProductField.CATEGORIES)) {
+            return ProductView.of(findById(id), fields);
+        }
+        return pager.select(Product.class, ProductSpecification.hasId(id), attributesOf(fields), Sort.unsorted(), 1)
+                .stream()
+                .findFirst()
+                .map(tuple -> ProductView.of(tuple, fields))
+                .orElseThrow();
+    }
+
+    /**
+     * Finds a single page with requested fields of products.
+     *
+     * @see #findPage(String, SortDir, String, Integer)
+     */
+    @Transactional
+    public KeysetPage<ProductView> findViewPage(@NotNull Set<ProductField> fields, String sortBy, SortDir sortDir,
+            String cursor, Integer limit) {
+        return findViewPage(null, fields, sortBy, sortDir, cursor, limit);
+    }
+
+    /**
+     * Finds a single page with requested fields of products matching all non-null filters.
+     *
+     * @see #findPageBySpecification(String, String, Long, Long, LocalDateTime, LocalDateTime, Collection, String,
+     * SortDir, String, Integer)
+     */
+    @Transactional
+    public KeysetPage<ProductView> findViewPageBySpecification(String name, String description, Long min, Long max,
+            LocalDateTime createdBefore, LocalDateTime createdAfter, Collection<String> categoryNames,
+            @NotNull Set<ProductField> fields, String sortBy, SortDir sortDir, String cursor, Integer limit) {
+        Specification<Product> specification = createSpecification(name, description, min, max, createdBefore,
+                createdAfter, categoryNames);
+        return findViewPage(specification, fields, sortBy, sortDir, cursor, limit);
+    }
+
+    /**
+     * Counts products matching all non-null filters per category.
+     * Category and text filters are answered by in-memory indexes, the database is queried for ids only
+     * when price or date filters are given, or the text index cannot answer.
+     *
+     * @return Category names with their product counts.
+     */
+    public SortedMap<String, Long> findFacets(String name, String description, Long min, Long max,
+            LocalDateTime createdBefore, LocalDateTime createdAfter, Collection<String> categoryNames) {
+        boolean needsDatabase = Stream.of(min, max, createdBefore, createdAfter).anyMatch(Objects::nonNull);
+        RoaringBitmap filter = categoryNames == null || categoryNames.isEmpty()
+                ? null
+                : facetIndex.productsOf(categoryNames);
+        for (Map.Entry<ProductTextIndex.Field, String> text : textFilters(name, description).entrySet()) {
+            Optional<Set<Long>> ids = textIndex.find(text.getKey(), text.getValue());
+            if (ids.isEmpty()) {
+                needsDatabase = true;
+                break;
+            }
+            filter = intersect(filter, CategoryFacetIndex.toBitmap(ids.get()));
+        }
+        if (needsDatabase) {
+            Specification<Product> specification = createSpecification(name, description, min, max,
+                    createdBefore, createdAfter, categoryNames);
+            filter = CategoryFacetIndex.toBitmap(pager.select(Product.class, specification, List.of(ID),
+                    Sort.unsorted(), Integer.MAX_VALUE).stream().map(tuple -> tuple.get(ID, Long.class)).toList());
+        }
+        return facetIndex.count(filter);
     }
 
     public List<Product> findBySpecification(String name, Sort sort) {
-        Specification<Product> specification = ProductSpecification.hasNameLike(name);
+        Specification<Product> specification = textSpecification(ProductTextIndex.Field.NAME, name);
         return productRepository.findAll(specification, sort);
     }
 
-    @Transactional
+    /**
+     * Writes that link categories resolve them before their transaction opens, so a missing category is created
+     * while the write holds no connection, and a write never waits for a second connection of the pool.
+     * Called inside a transaction, they join it, and categories unknown to the dictionary are then created
+     * on another connection. "Other" is resolved the same way, by writes that may need it.
+     */
     public Product addProduct(Product product) {
-        addOtherCategoryIfNotExists(product);
-        return productRepository.saveAndFlush(product);
+        if (!product.hasAnyCategory()) {
+            addOtherCategoryIfNotExists(product, otherCategory());
+        }
+        return inTransaction(() -> {
+            Product saved = productRepository.saveAndFlush(product);
+            publishSaved(List.of(saved));
+            return saved;
+        });
     }
 
-    @Transactional
     public Product addProduct(@NotNull ProductDto productDto) {
-        List<Category> categories = productDto.categories()
-                .stream()
-                .map(categoryName -> categoryRepository.findByName(categoryName).orElse(new Category(categoryName)))
-                .toList();
-        categoryRepository.saveAll(categories);
-        Product product = new Product(productDto.name(), productDto.description(), productDto.price(), categories);
-        productRepository.save(product);
-        return organizeCategoriesOfProduct(product);
+        Product product = createProduct(productDto, categoriesByName(categoryNamesOf(productDto)));
+        return inTransaction(() -> {
+            Product saved = productRepository.saveAndFlush(product);
+            publishSaved(List.of(saved));
+            return saved;
+        });
     }
 
-    @Transactional
+    /**
+     * Adds products in bulk.
+     * Category names are resolved through the dictionary, missing categories are created one at a time
+     * before the transaction opens, then products and their category links are written in JDBC batches.
+     *
+     * @param productDtos Products to add, those without categories are added to "Other".
+     * @return Added products, in the order of the given dtos.
+     */
     public List<Product> addProductsFromDto(@NotNull List<ProductDto> productDtos) {
-        List<Product> products = productDtos.stream().map(this::addProduct).toList();
-        return productRepository.saveAllAndFlush(products);
+        Map<String, Category> categories = categoriesOf(productDtos);
+        return inTransaction(() -> saveProducts(productDtos, categories));
     }
 
+    /**
+     * Adds products in bulk, with their categories resolved by {@link #categoriesOf(Collection)} beforehand,
+     * for callers that add them in a transaction of their own.
+     */
     @Transactional
+    public List<Product> addProductsFromDto(@NotNull List<ProductDto> productDtos,
+            @NotNull Map<String, Category> categories) {
+        return saveProducts(productDtos, categories);
+    }
+
+    /**
+     * Gets or creates the categories of the given products, "Other" for those without any.
+     * Called outside a transaction, so missing categories are created without holding a connection.
+     *
+     * @return Detached categories by name.
+     */
+    public @NotNull Map<String, Category> categoriesOf(@NotNull Collection<ProductDto> productDtos) {
+        return categoriesByName(productDtos.stream()
+                .flatMap(productDto -> categoryNamesOf(productDto).stream())
+                .collect(Collectors.toSet()));
+    }
+
     public List<Product> addProducts(@NotNull List<Product> products) {
-        products.forEach(this::addOtherCategoryIfNotExists);
-        return productRepository.saveAllAndFlush(products);
+        if (!products.stream().allMatch(Product::hasAnyCategory)) {
+            Category other = otherCategory();
+            products.forEach(product -> addOtherCategoryIfNotExists(product, other));
+        }
+        return inTransaction(() -> {
+            List<Product> saved = productRepository.saveAllAndFlush(products);
+            publishSaved(saved);
+            return saved;
+        });
     }
 
-    @Transactional
     public Product updateProduct(@NotNull Product product) {
-        return productRepository.findById(product.getId())
+        Collection<Category> categories = categoriesByName(product.getCategories().isEmpty()
+                ? List.of(OTHER)
+                : product.getCategories().stream().map(Category::getName).toList()).values();
+        Category other = otherCategory();
+        return inTransaction(() -> productRepository.findById(product.getId())
                 .map(productToUpdate -> {
                     productToUpdate.setName(product.getName());
                     productToUpdate.setDescription(product.getDescription());
                     productToUpdate.setPrice(product.getPrice());
-                    productToUpdate.addCategories(product.getCategories().stream().toList());
+                    productToUpdate.linkCategories(categories);
                     return productToUpdate;
                 })
-                .map(this::organizeCategoriesOfProduct)
-                .orElseThrow(() -> new IllegalArgumentException(NOT_FOUND.formatted(product.getId())));
+                .map(productToUpdate -> organizeCategoriesOfProduct(productToUpdate, other))
+                .orElseThrow(() -> new IllegalArgumentException(NOT_FOUND.formatted(product.getId()))));
     }
 
-    @Transactional
     public Product updateProduct(Long id, ProductDto productDto) {
-        return productRepository.findById(id).map(product -> {
-            assignNonNullValuesToProductFromProductDto(productDto, product);
-            return organizeCategoriesOfProduct(product);
-        }).orElseThrow(() -> new IllegalArgumentException(NOT_FOUND.formatted(id)));
+        Map<String, Category> categories = productDto.categories() == null
+                ? Map.of()
+                : categoriesByName(productDto.categories());
+        Category other = otherCategory();
+        return inTransaction(() -> productRepository.findById(id).map(product -> {
+            assignNonNullValuesToProductFromProductDto(productDto, product, categories);
+            return organizeCategoriesOfProduct(product, other);
+        }).orElseThrow(() -> new IllegalArgumentException(NOT_FOUND.formatted(id))));
     }
 
     @Transactional
     public void deleteProduct(Long id) {
-        productRepository.findById(id).ifPresentOrElse(product -> {
-            removeProductFromCategories(product);
-            productRepository.deleteById(id);
-        }, () -> {
+        if (deleteProducts(List.of(id)).isEmpty()) {
             throw new IllegalArgumentException(NOT_FOUND.formatted(id));
-        });
+        }
     }
 
+    /**
+     * Deletes products and their category links with set based statements, a fixed number per chunk of ids.
+     * Products that are loaded in the current persistence context are evicted from it.
+     *
+     * @param ids The ids of the products to delete.
+     * @return Ids that were deleted and ids that did not exist.
+     */
     @Transactional
-    public void deleteProducts(List<Long> ids) {
-        List<Product> products = productRepository.findAllByIdIn(ids);
-        if (products.isEmpty()) {
-            throw new IllegalArgumentException(NO_PRODUCTS.formatted(ids));
-        }
-        products.forEach(product -> {
-            removeProductFromCategories(product);
-            productRepository.deleteById(product.getId());
+    public DeletionResult deleteProducts(@NotNull List<Long> ids) {
+        List<Long> requested = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<Long> deleted = new ArrayList<>(requested.size());
+        for (int from = 0; from < requested.size(); from += DELETE_CHUNK) {
+            List<Long> chunk = requested.subList(from, Math.min(from + DELETE_CHUNK, requested.size()));
+            Set<Long> found = new HashSet<>(productRepository.findExistingIds(chunk));
+            List<Long> existing = chunk.stream().filter(found::contains).toList();
+            if (existing.isEmpty()) {
+                continue;
+            }
+            evictProducts(existing);
+            productRepository.deleteCategoryLinksByProductIdIn(existing);
+            productRepository.deleteAllByIdInBulk(existing);
+            deleted.addAll(existing);
+        }
+        if (!deleted.isEmpty()) {
+            publisher.publishEvent(ProductsChangedEvent.deleted(deleted));
+        }
+        Set<Long> deletedSet = new HashSet<>(deleted);
+        List<Long> missing = requested.stream().filter(id -> !deletedSet.contains(id)).toList();
+        return new DeletionResult(List.copyOf(deleted), missing);
+    }
+
+    public Product clearCategoriesOfProduct(Long id) {
+        Category other = otherCategory();
+        return inTransaction(() -> {
+            Product product = productRepository.findWithCategoriesById(id).orElseThrow();
+            product.clearCategories();
+            addOtherCategoryIfNotExists(product, other);
+            Product saved = productRepository.save(product);
+            publishSaved(List.of(saved));
+            return saved;
         });
     }
 
-    public void clearCategoriesOfProduct(Long id) {
-        Product product = productRepository.findById(id).orElseThrow();
-        product.clearCategories();
-        addOtherCategoryIfNotExists(product);
-        productRepository.save(product);
+    /**
+     * Gets or creates the "Other" category, for writes that may leave a product without categories.
+     * Called before their transaction opens, like any other category resolution.
+     *
+     * @return Detached "Other" category.
+     */
+    public @NotNull Category otherCategory() {
+        return categoryResolver.getOrCreate(OTHER);
     }
 
-    public void addOtherCategoryIfNotExists(@NotNull Product product) {
+    /**
+     * Links the product to "Other", resolved by {@link #otherCategory()}, when it has no category left.
+     * The product is saved by the caller.
+     */
+    public void addOtherCategoryIfNotExists(@NotNull Product product, @NotNull Category other) {
         if (!product.hasAnyCategory()) {
-            addOtherCategory(!categoryRepository.existsByName(OTHER)
-                    ? categoryRepository.save(new Category(OTHER))
-                    : categoryRepository.findByName(OTHER).orElseThrow(), product);
+            product.linkCategories(List.of(other));
         }
     }
 
-    private void addProductToCategories(@NotNull Product product) {
-        Collection<Category> categories = product.getCategories()
-                .stream()
-                .peek(category -> category.addProduct(product))
-                .collect(Collectors.toSet());
-        categoryRepository.saveAll(categories);
+    /**
+     * Publishes the state of written products, listeners receive it after the transaction commits.
+     */
+    public void publishSaved(@NotNull Collection<Product> products) {
+        if (!products.isEmpty()) {
+            publisher.publishEvent(ProductsChangedEvent.saved(products));
+        }
+    }
+
+    /**
+     * Resolves category names through the dictionary, so known categories cost no query. They are returned as
+     * detached categories with only their id and name, which products link to on the owning side.
+     * Missing categories are created, each committed in its own transaction.
+     */
+    private @NotNull Map<String, Category> categoriesByName(@NotNull Collection<String> names) {
+        return categoryResolver.getOrCreate(names);
+    }
+
+    /**
+     * Runs the write in a new transaction, or in the one of the caller.
+     */
+    private <T> T inTransaction(@NotNull Supplier<T> write) {
+        return transactionTemplate.execute(status -> write.get());
+    }
+
+    private @NotNull List<Product> saveProducts(@NotNull List<ProductDto> productDtos,
+            @NotNull Map<String, Category> categories) {
+        List<Product> products = productDtos.stream()
+                .map(productDto -> createProduct(productDto, categories))
+                .toList();
+        List<Product> saved = productRepository.saveAllAndFlush(products);
+        publishSaved(saved);
+        return saved;
+    }
+
+    @Contract(pure = true)
+    private static @NotNull List<String> categoryNamesOf(@NotNull ProductDto productDto) {
+        return productDto.categories() == null || productDto.categories().isEmpty()
+                ? List.of(OTHER)
+                : productDto.categories();
+    }
+
+    @NotNull
+    private static Product createProduct(@NotNull ProductDto productDto, Map<String, Category> categories) {
+        Product product = new Product(productDto.name(), productDto.description(), productDto.price());
+        product.linkCategories(categoryNamesOf(productDto).stream().map(categories::get).toList());
+        return product;
     }
 
-    private void addOtherCategory(Category other, @NotNull Product product) {
-        product.addCategory(other);
-        other.addProduct(product);
-        saveAndFlushProductAndCategory(product, other);
+    /**
+     * Loads products by id in the order of the given ids, products deleted meanwhile are left out.
+     */
+    private @NotNull List<Product> findAllInOrder(@NotNull List<Long> ids) {
+        Map<Long, Product> products = productRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(products::get).filter(Objects::nonNull).toList();
     }
 
     private List<Product> findProducts(Specification<Product> specification, Sort sort) {
@@ -184,11 +525,80 @@ public class ProductService {
                 (sort != null ? findAll(sort) : findAll());
     }
 
+    private KeysetPage<ProductView> findViewPage(Specification<Product> specification,
+            @NotNull Set<ProductField> fields, String sortBy, SortDir sortDir, String cursor, Integer limit) {
+        if (!fields.contains(ProductField.CATEGORIES)) {
+            return pager.fetchTuples(Product.class, specification, attributesOf(fields), sortBy, sortDir, cursor, limit)
+                    .map(tuple -> ProductView.of(tuple, fields));
+        }
+        KeysetPage<Product> page = pager.fetch(Product.class, specification, sortBy, sortDir, cursor, limit);
+        if (!page.items().isEmpty()) {
+            productRepository.findAllWithCategoriesByIdIn(page.items().stream().map(Product::getId).toList());
+        }
+        return page.map(product -> ProductView.of(product, fields));
+    }
+
+    @Contract(pure = true)
+    private static @NotNull Map<ProductTextIndex.Field, String> textFilters(String name, String description) {
+        Map<ProductTextIndex.Field, String> filters = new EnumMap<>(ProductTextIndex.Field.class);
+        if (name != null) {
+            filters.put(ProductTextIndex.Field.NAME, name);
+        }
+        if (description != null) {
+            filters.put(ProductTextIndex.Field.DESCRIPTION, description);
+        }
+        return filters;
+    }
+
+    @Contract(pure = true)
+    private static @NotNull RoaringBitmap intersect(@Nullable RoaringBitmap filter, @NotNull RoaringBitmap ids) {
+        return filter == null ? ids : RoaringBitmap.and(filter, ids);
+    }
+
+    @Contract(pure = true)
+    private static @NotNull List<String> attributesOf(@NotNull Set<ProductField> fields) {
+        return fields.stream().filter(ProductField::isColumn).map(ProductField::getAttribute).toList();
+    }
+
+    private @Nullable Specification<Product> createSpecification(String name, String description, Long min,
+            Long max, LocalDateTime createdBefore, LocalDateTime createdAfter, Collection<String> categoryNames) {
+        return Stream.of(
+                        categoryNames == null || categoryNames.isEmpty()
+                                ? null
+                                : Specification.anyOf(categoryNames.stream()
+                                        .map(ProductSpecification::hasCategoryName)
+                                        .collect(Collectors.toSet())),
+                        nullCheck(textSpecification(ProductTextIndex.Field.NAME, name), name),
+                        nullCheck(textSpecification(ProductTextIndex.Field.DESCRIPTION, description), description),
+                        nullCheck(ProductSpecification.hasPriceLessOrEqualThan(max), max),
+                        nullCheck(ProductSpecification.hasPriceGreaterOrEqualThan(min), min),
+                        nullCheck(ProductSpecification.wasCreatedBefore(createdBefore), createdBefore),
+                        nullCheck(ProductSpecification.wasCreatedAfter(createdAfter), createdAfter))
+                .filter(Objects::nonNull)
+                .reduce(Specification::and)
+                .orElse(null);
+    }
+
+    /**
+     * Substring filter answered by the text index when possible, by {@code LIKE} otherwise.
+     */
+    private @Nullable Specification<Product> textSpecification(ProductTextIndex.Field field, String text) {
+        if (text == null) {
+            return null;
+        }
+        return textIndex.find(field, text)
+                .map(ProductSpecification::hasIdIn)
+                .orElseGet(() -> field == ProductTextIndex.Field.NAME
+                        ? ProductSpecification.hasNameLike(text)
+                        : ProductSpecification.hasDescriptionLike(text));
+    }
+
     @NotNull
-    private Product organizeCategoriesOfProduct(Product productToUpdate) {
-        addOtherCategoryIfNotExists(productToUpdate);
-        addProductToCategories(productToUpdate);
-        return productRepository.saveAndFlush(productToUpdate);
+    private Product organizeCategoriesOfProduct(Product productToUpdate, @NotNull Category other) {
+        addOtherCategoryIfNotExists(productToUpdate, other);
+        Product saved = productRepository.saveAndFlush(productToUpdate);
+        publishSaved(List.of(saved));
+        return saved;
     }
 
     @SafeVarargs
@@ -196,7 +606,8 @@ public class ProductService {
         return (Stream.of(args).noneMatch(Objects::isNull)) ? specification : null;
     }
 
-    private void assignNonNullValuesToProductFromProductDto(@NotNull ProductDto productDto, Product product) {
+    private void assignNonNullValuesToProductFromProductDto(@NotNull ProductDto productDto, Product product,
+            @NotNull Map<String, Category> categories) {
         if (productDto.name() != null) {
             product.setName(productDto.name());
         }
@@ -208,36 +619,34 @@ public class ProductService {
         }
         if (productDto.categories() != null && !productDto.categories().isEmpty()) {
             removeOtherCategoryIfPresent(product);
-            List<Category> categories = productDto.categories()
-                    .stream()
-                    .map(categoryName -> categoryRepository.findByName(categoryName).orElse(new Category(categoryName)))
-                    .toList();
-            categoryRepository.saveAllAndFlush(categories);
-            product.addCategories(categories);
+            product.linkCategories(productDto.categories().stream().map(categories::get).toList());
         }
     }
 
-    private void removeProductFromCategories(@NotNull Product product) {
-        Iterable<Category> categoriesToIterate = new HashSet<>(product.getCategories());
-        categoriesToIterate.forEach(category -> {
-            category.removeProduct(product);
-            categoryRepository.saveAndFlush(category);
+    /**
+     * Bulk statements bypass the persistence context, so products about to be deleted that are loaded in it
+     * are removed from loaded category collections and detached. Products that are not loaded cost nothing.
+     */
+    private void evictProducts(@NotNull Collection<Long> ids) {
+        Session session = entityManager.unwrap(Session.class);
+        ids.stream().map(id -> session.getReference(Product.class, id)).forEach(product -> {
+            if (Hibernate.isInitialized(product)) {
+                product.getCategories()
+                        .stream()
+                        .filter(category -> Hibernate.isInitialized(category.getProducts()))
+                        .forEach(category -> category.getProducts().remove(product));
+            }
+            session.evict(product);
         });
     }
 
     private void removeOtherCategoryIfPresent(@NotNull Product product) {
         if (product.getCategories().size() == 1 && product.getCategories().first().getName().equals(OTHER)) {
+            Category other = product.getCategories().first();
             product.getCategories().clear();
-            Category other = categoryRepository.findByName(OTHER).orElseThrow();
-            other.getProducts().remove(product);
-            saveAndFlushProductAndCategory(product, other);
+            if (Hibernate.isInitialized(other.getProducts())) {
+                other.getProducts().remove(product);
+            }
         }
     }
-
-    private void saveAndFlushProductAndCategory(@NotNull Product product, Category other) {
-        productRepository.save(product);
-        categoryRepository.save(other);
-        productRepository.flush();
-        categoryRepository.flush();
-    }
 }
@@ -4,10 +4,36 @@ import lombok.experimental.UtilityClass;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Locale;
 
 @UtilityClass
 public class ProductSpecification {
 
+    /**
+     * Escape character of {@code LIKE} patterns built by {@link #containing(String)}.
+     */
+    public final char LIKE_ESCAPE = '!';
+
+    /**
+     * @return Lower-cased {@code LIKE} pattern matching values that contain the text, with {@code %} and {@code _}
+     * in the text escaped by {@link #LIKE_ESCAPE}, so they match only themselves.
+     */
+    public String containing(String text) {
+        return "%" + text.toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_") + "%";
+    }
+
+    public Specification<Product> hasId(Long id) {
+        return (root, query, builder) -> builder.equal(root.get("id"), id);
+    }
+
+    public Specification<Product> hasIdIn(Collection<Long> ids) {
+        return (root, query, builder) -> ids.isEmpty() ? builder.disjunction() : root.get("id").in(ids);
+    }
+
     public Specification<Product> hasCategoryName(String name) {
         return (root, query, builder) -> {
             query.distinct(true);
@@ -16,12 +42,12 @@ public class ProductSpecification {
     }
 
     public Specification<Product> hasNameLike(String name) {
-        return (root, query, builder) -> builder.like(builder.lower(root.get("name")), "%" + name.toLowerCase() + "%");
+        return (root, query, builder) -> builder.like(builder.lower(root.get("name")), containing(name), LIKE_ESCAPE);
     }
 
     public Specification<Product> hasDescriptionLike(String description) {
         return (root, query, builder) -> builder.like(builder.lower(root.get("description")),
-                "%" + description.toLowerCase() + "%");
+                containing(description), LIKE_ESCAPE);
     }
 
     public Specification<Product> hasPriceGreaterOrEqualThan(Long min) {
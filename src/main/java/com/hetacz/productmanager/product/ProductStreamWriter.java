@@ -0,0 +1,67 @@
+package com.hetacz.productmanager.product;
+
+import com.hetacz.productmanager.json.CatalogEncoder;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writes products to a response one at a time, through a single buffer,
+ * so no representation of the whole list is ever built.
+ */
+@Component
+public class ProductStreamWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte START_ARRAY = '[';
+    private static final byte END_ARRAY = ']';
+    private static final byte COMMA = ',';
+    private static final byte NEW_LINE = '\n';
+    private final CatalogEncoder encoder;
+
+    public ProductStreamWriter(CatalogEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * @param source Passes products to the given consumer and returns their number.
+     * @return Number of written products.
+     */
+    public long write(OutputStream outputStream, StreamFormat format,
+            @NotNull ToLongFunction<Consumer<? super Product>> source) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        if (format == StreamFormat.JSON) {
+            out.write(START_ARRAY);
+        }
+        long count = source.applyAsLong(new Consumer<Product>() {
+            private boolean first = true;
+
+            @Override
+            public void accept(Product product) {
+                try {
+                    if (format == StreamFormat.JSON && !first) {
+                        out.write(COMMA);
+                    }
+                    out.write(encoder.encode(product));
+                    if (format == StreamFormat.NDJSON) {
+                        out.write(NEW_LINE);
+                    }
+                    first = false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        if (format == StreamFormat.JSON) {
+            out.write(END_ARRAY);
+        }
+        out.flush();
+        return count;
+    }
+}
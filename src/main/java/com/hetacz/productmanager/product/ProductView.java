@@ -0,0 +1,54 @@
+package com.hetacz.productmanager.product;
+
+import jakarta.persistence.Tuple;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Subset of product attributes, as requested by the fields parameter.
+ *
+ * @param values Values of the requested fields, in declaration order of {@link ProductField}.
+ */
+public record ProductView(Map<ProductField, Object> values) {
+
+    @Contract("_, _ -> new")
+    public static @NotNull ProductView of(@NotNull Tuple tuple, @NotNull Set<ProductField> fields) {
+        Map<ProductField, Object> values = new EnumMap<>(ProductField.class);
+        fields.forEach(field -> values.put(field, tuple.get(field.getAttribute())));
+        return new ProductView(Collections.unmodifiableMap(values));
+    }
+
+    @Contract("_, _ -> new")
+    public static @NotNull ProductView of(@NotNull Product product, @NotNull Set<ProductField> fields) {
+        Map<ProductField, Object> values = new EnumMap<>(ProductField.class);
+        fields.forEach(field -> values.put(field, switch (field) {
+            case ID -> product.getId();
+            case NAME -> product.getName();
+            case DESCRIPTION -> product.getDescription();
+            case PRICE -> product.getPrice();
+            case CREATED -> product.getCreated();
+            case MODIFIED -> product.getModified();
+            case CATEGORIES -> List.copyOf(product.getCategories());
+        }));
+        return new ProductView(Collections.unmodifiableMap(values));
+    }
+
+    public Long id() {
+        return (Long) values.get(ProductField.ID);
+    }
+
+    @Override
+    public String toString() {
+        return values.entrySet()
+                .stream()
+                .map(entry -> entry.getKey().getAttribute() + "=" + entry.getValue())
+                .collect(Collectors.joining(", ", "Product{", "}"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.hetacz.productmanager.product;
+
+import com.hetacz.productmanager.category.Category;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Published by product writes. State is copied when the event is created, so listeners running after commit
+ * do not touch entities.
+ *
+ * @param saved   State of created or updated products.
+ * @param deleted Ids of deleted products.
+ */
+public record ProductsChangedEvent(List<ProductState> saved, List<Long> deleted) {
+
+    @Contract("_ -> new")
+    public static @NotNull ProductsChangedEvent saved(@NotNull Collection<Product> products) {
+        return new ProductsChangedEvent(products.stream().map(ProductState::of).toList(), List.of());
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull ProductsChangedEvent deleted(@NotNull Collection<Long> ids) {
+        return new ProductsChangedEvent(List.of(), List.copyOf(ids));
+    }
+
+    /**
+     * @param categories Ids and names of all categories the product belongs to after the write.
+     */
+    public record ProductState(Long id, String name, String description, Long price, Map<Long, String> categories,
+            LocalDateTime modified) {
+
+        @Contract("_ -> new")
+        static @NotNull ProductState of(@NotNull Product product) {
+            return new ProductState(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                    product.getCategories()
+                            .stream()
+                            .collect(Collectors.toUnmodifiableMap(Category::getId, Category::getName)),
+                    product.getModified());
+        }
+    }
+}
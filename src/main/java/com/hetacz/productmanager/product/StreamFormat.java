@@ -0,0 +1,25 @@
+package com.hetacz.productmanager.product;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+/**
+ * Formats of streamed product lists.
+ */
+@Getter
+public enum StreamFormat {
+    /**
+     * One JSON object per line.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    /**
+     * Single JSON array.
+     */
+    JSON(MediaType.APPLICATION_JSON);
+
+    private final MediaType mediaType;
+
+    StreamFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hetacz.productmanager.reactive;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Category with its products, in the same shape as {@code GET /api/categories/{id}}.
+ */
+public record CategoryDetails(Long id, String name, List<ProductRow> products) {
+
+    @Contract("_, _ -> new")
+    static @NotNull CategoryDetails of(@NotNull CategoryRow category, List<ProductRow> products) {
+        return new CategoryDetails(category.id(), category.name(), products);
+    }
+}
@@ -0,0 +1,8 @@
+package com.hetacz.productmanager.reactive;
+
+/**
+ * Category without its products, as read by the reactive API.
+ */
+public record CategoryRow(Long id, String name) {
+
+}
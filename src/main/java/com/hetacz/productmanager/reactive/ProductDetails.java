@@ -0,0 +1,20 @@
+package com.hetacz.productmanager.reactive;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Product with its categories, in the same shape as {@code GET /api/products/{id}}.
+ */
+public record ProductDetails(Long id, String name, String description, Long price, LocalDateTime created,
+        LocalDateTime modified, List<CategoryRow> categories) {
+
+    @Contract("_, _ -> new")
+    static @NotNull ProductDetails of(@NotNull ProductRow product, List<CategoryRow> categories) {
+        return new ProductDetails(product.id(), product.name(), product.description(), product.price(),
+                product.created(), product.modified(), categories);
+    }
+}
@@ -0,0 +1,60 @@
+package com.hetacz.productmanager.reactive;
+
+import com.hetacz.productmanager.product.ProductSpecification;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters of {@code /specific}, translated to SQL conditions with named parameters.
+ * Null filters are ignored and wildcards in text filters are escaped, the same as in {@link ProductSpecification}.
+ */
+public record ProductFilter(String name, String description, Long min, Long max, LocalDateTime createdBefore,
+        LocalDateTime createdAfter, Collection<String> categoryNames) {
+
+    private static final String AND = " and ";
+    private static final String WHERE = " where ";
+    private static final String ESCAPE = " escape '" + ProductSpecification.LIKE_ESCAPE + "'";
+
+    /**
+     * @param bindings Receives the values of the named parameters used by the conditions.
+     * @return Where clause with a leading space, empty if there are no filters.
+     */
+    public @NotNull String toWhereClause(Map<String, Object> bindings) {
+        List<String> conditions = new ArrayList<>();
+        if (name != null) {
+            conditions.add("lower(p.name) like :name" + ESCAPE);
+            bindings.put("name", ProductSpecification.containing(name));
+        }
+        if (description != null) {
+            conditions.add("lower(p.description) like :description" + ESCAPE);
+            bindings.put("description", ProductSpecification.containing(description));
+        }
+        if (min != null) {
+            conditions.add("p.price >= :min");
+            bindings.put("min", min);
+        }
+        if (max != null) {
+            conditions.add("p.price <= :max");
+            bindings.put("max", max);
+        }
+        if (createdBefore != null) {
+            conditions.add("p.created <= :createdBefore");
+            bindings.put("createdBefore", createdBefore);
+        }
+        if (createdAfter != null) {
+            conditions.add("p.created >= :createdAfter");
+            bindings.put("createdAfter", createdAfter);
+        }
+        if (categoryNames != null && !categoryNames.isEmpty()) {
+            conditions.add("p.id in (select pc.product_id from product_categories pc "
+                    + "join category c on c.id = pc.category_id where c.name in (:categoryNames))");
+            bindings.put("categoryNames", List.copyOf(categoryNames));
+        }
+        return conditions.isEmpty() ? "" : WHERE + String.join(AND, conditions);
+    }
+}
@@ -0,0 +1,11 @@
+package com.hetacz.productmanager.reactive;
+
+import java.time.LocalDateTime;
+
+/**
+ * Product without its categories, as read by the reactive API.
+ */
+public record ProductRow(Long id, String name, String description, Long price, LocalDateTime created,
+        LocalDateTime modified) {
+
+}
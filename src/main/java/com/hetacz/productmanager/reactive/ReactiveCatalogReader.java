@@ -0,0 +1,154 @@
+package com.hetacz.productmanager.reactive;
+
+import com.hetacz.productmanager.SortDir;
+import com.hetacz.productmanager.product.ProductField;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads products and categories over R2DBC, without blocking a thread while waiting for the database.
+ * Results are emitted as rows arrive and fetched in chunks as they are requested, so a slow reader
+ * holds back the query instead of buffering the result.
+ * The connection factory is kept private rather than exposed as a bean,
+ * so JPA remains the only data access Spring Boot configures, with its transactions and initialization.
+ */
+@Component
+public class ReactiveCatalogReader {
+
+    private static final String PRODUCT_NOT_FOUND = "Product with id: %d not found.";
+    private static final String CATEGORY_NOT_FOUND = "Category with id: %d not found.";
+    private static final String PRODUCTS = "select p.id, p.name, p.description, p.price, p.created, p.modified "
+            + "from product p";
+    private static final String PRODUCT_BY_ID = PRODUCTS + " where p.id = :id";
+    private static final String PRODUCTS_OF_CATEGORY = PRODUCTS
+            + " join product_categories pc on pc.product_id = p.id where pc.category_id = :id order by p.name";
+    private static final String CATEGORIES = "select c.id, c.name from category c";
+    private static final String CATEGORY_BY_ID = CATEGORIES + " where c.id = :id";
+    private static final String CATEGORIES_OF_PRODUCT = CATEGORIES
+            + " join product_categories pc on pc.category_id = c.id where pc.product_id = :id order by c.name";
+    private static final String ORDER = " order by p.%s %s, p.id %2$s";
+    private static final String LIMIT = " limit %d";
+    private static final String ID = "id";
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient client;
+    private final int fetchSize;
+
+    public ReactiveCatalogReader(@Value("${productmanager.reactive.url}") String url,
+            @Value("${spring.datasource.username:sa}") String username,
+            @Value("${spring.datasource.password:}") String password,
+            @Value("${productmanager.reactive.fetch-size:1000}") int fetchSize) {
+        this.connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+        this.client = DatabaseClient.create(connectionFactory);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return Product with its categories, or an error with {@link NoSuchElementException} if there is none.
+     */
+    public Mono<ProductDetails> findProduct(Long id) {
+        return client.sql(PRODUCT_BY_ID)
+                .bind(ID, id)
+                .map(ReactiveCatalogReader::toProduct)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException(PRODUCT_NOT_FOUND.formatted(id))))
+                .zipWith(client.sql(CATEGORIES_OF_PRODUCT)
+                        .bind(ID, id)
+                        .map(ReactiveCatalogReader::toCategory)
+                        .all()
+                        .collectList(), ProductDetails::of);
+    }
+
+    /**
+     * @param sortBy Product column to sort by, id if null.
+     * @param limit  Maximum number of products, all if null.
+     * @return Products matching all non-null filters, without their categories.
+     * @throws IllegalArgumentException if the sorted field is not a product column.
+     */
+    public Flux<ProductRow> findProducts(@NotNull ProductFilter filter, @Nullable String sortBy,
+            @Nullable SortDir sortDir, @Nullable Integer limit) {
+        Map<String, Object> bindings = new HashMap<>();
+        StringBuilder sql = new StringBuilder(PRODUCTS)
+                .append(filter.toWhereClause(bindings))
+                .append(ORDER.formatted(sortColumn(sortBy), sortDir != null ? sortDir : SortDir.ASC));
+        if (limit != null) {
+            sql.append(LIMIT.formatted(limit));
+        }
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+        for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+            spec = spec.bind(binding.getKey(), binding.getValue());
+        }
+        return spec.filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)))
+                .map(ReactiveCatalogReader::toProduct)
+                .all();
+    }
+
+    /**
+     * @return Category with its products, or an error with {@link NoSuchElementException} if there is none.
+     */
+    public Mono<CategoryDetails> findCategory(Long id) {
+        return client.sql(CATEGORY_BY_ID)
+                .bind(ID, id)
+                .map(ReactiveCatalogReader::toCategory)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException(CATEGORY_NOT_FOUND.formatted(id))))
+                .zipWith(client.sql(PRODUCTS_OF_CATEGORY)
+                        .bind(ID, id)
+                        .map(ReactiveCatalogReader::toProduct)
+                        .all()
+                        .collectList(), CategoryDetails::of);
+    }
+
+    public Flux<CategoryRow> findCategories() {
+        return client.sql(CATEGORIES + " order by c.id")
+                .map(ReactiveCatalogReader::toCategory)
+                .all();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connectionFactory instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+    private static String sortColumn(@Nullable String sortBy) {
+        if (sortBy == null) {
+            return ID;
+        }
+        ProductField field = ProductField.of(sortBy);
+        if (!field.isColumn()) {
+            throw new IllegalArgumentException("Cannot sort by: %s".formatted(sortBy));
+        }
+        return field.getAttribute();
+    }
+
+    private static @NotNull ProductRow toProduct(@NotNull Readable row) {
+        return new ProductRow(row.get(ID, Long.class), row.get("name", String.class),
+                row.get("description", String.class), row.get("price", Long.class),
+                row.get("created", LocalDateTime.class), row.get("modified", LocalDateTime.class));
+    }
+
+    private static @NotNull CategoryRow toCategory(@NotNull Readable row) {
+        return new CategoryRow(row.get(ID, Long.class), row.get("name", String.class));
+    }
+}
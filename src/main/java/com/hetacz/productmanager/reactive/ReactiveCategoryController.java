@@ -0,0 +1,35 @@
+package com.hetacz.productmanager.reactive;
+
+import org.jetbrains.annotations.Contract;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read endpoints of {@code /api/categories} served over R2DBC.
+ * Listed categories are returned without their products.
+ */
+@RestController
+@RequestMapping("/api/reactive/categories")
+public class ReactiveCategoryController {
+
+    private final ReactiveCatalogReader reader;
+
+    @Contract(pure = true)
+    public ReactiveCategoryController(ReactiveCatalogReader reader) {
+        this.reader = reader;
+    }
+
+    @GetMapping("/{id}")
+    public Mono<CategoryDetails> getCategoryById(@PathVariable Long id) {
+        return reader.findCategory(id);
+    }
+
+    @GetMapping("/")
+    public Flux<CategoryRow> getAllCategories() {
+        return reader.findCategories();
+    }
+}
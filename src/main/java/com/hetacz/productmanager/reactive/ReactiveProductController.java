@@ -0,0 +1,75 @@
+package com.hetacz.productmanager.reactive;
+
+import com.hetacz.productmanager.SortDir;
+import org.jetbrains.annotations.Contract;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read endpoints of {@code /api/products} served over R2DBC.
+ * The request thread is released while waiting for the database, so idle connections do not hold threads.
+ * {@code /specific} streams all matching products as NDJSON, requesting more rows as the client reads them;
+ * as a JSON array it is limited to one page, as the whole array is collected before it is written.
+ */
+@RestController
+@RequestMapping("/api/reactive/products")
+public class ReactiveProductController {
+
+    private static final String LIMIT_INVALID = "Limit must be positive, was: %d";
+    private final ReactiveCatalogReader reader;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    @Contract(pure = true)
+    public ReactiveProductController(ReactiveCatalogReader reader,
+            @Value("${productmanager.paging.default-limit:100}") int defaultLimit,
+            @Value("${productmanager.paging.max-limit:1000}") int maxLimit) {
+        this.reader = reader;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ProductDetails> getProductById(@PathVariable Long id) {
+        return reader.findProduct(id);
+    }
+
+    @GetMapping(value = "/specific", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ProductRow> streamProductsBySpecification(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String description, @RequestParam(required = false) Long min,
+            @RequestParam(required = false) Long max, @RequestParam(required = false) LocalDateTime before,
+            @RequestParam(required = false) LocalDateTime after,
+            @RequestParam(required = false) List<String> categories, @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) SortDir sortDir, @RequestParam(required = false) Integer limit
+    ) {
+        return reader.findProducts(new ProductFilter(name, description, min, max, before, after, categories), sortBy,
+                sortDir, limit != null ? checkLimit(limit) : null);
+    }
+
+    @GetMapping(value = "/specific", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<ProductRow> getProductsBySpecification(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String description, @RequestParam(required = false) Long min,
+            @RequestParam(required = false) Long max, @RequestParam(required = false) LocalDateTime before,
+            @RequestParam(required = false) LocalDateTime after,
+            @RequestParam(required = false) List<String> categories, @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) SortDir sortDir, @RequestParam(required = false) Integer limit
+    ) {
+        return reader.findProducts(new ProductFilter(name, description, min, max, before, after, categories), sortBy,
+                sortDir, limit != null ? Math.min(checkLimit(limit), maxLimit) : defaultLimit);
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(LIMIT_INVALID.formatted(limit));
+        }
+        return limit;
+    }
+}
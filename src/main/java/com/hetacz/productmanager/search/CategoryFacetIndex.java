@@ -0,0 +1,246 @@
+package com.hetacz.productmanager.search;
+
+import com.hetacz.productmanager.category.CategoriesChangedEvent;
+import com.hetacz.productmanager.product.ProductsChangedEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Compressed bitmap of product ids per category, used for faceted counts.
+ * A count is the cardinality of the intersection of a category bitmap with the bitmap of the filter result,
+ * so its cost depends on the compressed size of the bitmaps, not on the number of matching rows.
+ * Built from {@code PRODUCT_CATEGORIES} on startup and kept up to date by product and category change events.
+ * The categories of each product are kept as well, so a write touches only the bitmaps of the categories
+ * the product leaves or joins.
+ * Product ids are stored as 32-bit integers, products with larger ids are left out of the index.
+ */
+@Slf4j
+@Component
+public class CategoryFacetIndex {
+
+    private static final String REBUILT = "Facet index rebuilt with {} categories in {} ms";
+    private static final String OUT_OF_RANGE = "Product id {} does not fit the facet index, left out";
+    private static final long[] NO_CATEGORIES = new long[0];
+    private static final int FETCH_SIZE = 1000;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TransactionTemplate transactionTemplate;
+    private Facets facets = new Facets();
+    private List<Object> writtenDuringRebuild;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Contract(pure = true)
+    public CategoryFacetIndex(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @NotNull
+    public static RoaringBitmap toBitmap(@NotNull Collection<Long> ids) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        ids.forEach(id -> bitmap.add(Math.toIntExact(id)));
+        return bitmap;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds all bitmaps from the database into new ones, while the current ones keep answering counts.
+     * Writes committed meanwhile are applied to the current bitmaps and kept, then applied again to the new ones
+     * before they replace the current ones, so none is lost.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            writtenDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Facets rebuilt = new Facets();
+        boolean built = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> categories = entityManager.createQuery("select c.id, c.name from Category c",
+                        Object[].class).getResultList();
+                categories.forEach(row -> rebuilt.names.put((Long) row[0], (String) row[1]));
+                Map<Integer, List<Long>> links = new HashMap<>();
+                try (Stream<?> rows = entityManager
+                        .createNativeQuery("SELECT PRODUCT_ID, CATEGORY_ID FROM PRODUCT_CATEGORIES")
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                        .getResultStream()) {
+                    rows.map(Object[].class::cast).forEach(row -> {
+                        long productId = ((Number) row[0]).longValue();
+                        if (fits(productId)) {
+                            links.computeIfAbsent((int) productId, id -> new ArrayList<>())
+                                    .add(((Number) row[1]).longValue());
+                        }
+                    });
+                }
+                links.forEach((productId, categoryIds) -> rebuilt.link(productId,
+                        categoryIds.stream().mapToLong(Long::longValue).toArray()));
+            });
+            rebuilt.bitmaps.values().forEach(RoaringBitmap::runOptimize);
+            built = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (built) {
+                    writtenDuringRebuild.forEach(rebuilt::apply);
+                    facets = rebuilt;
+                }
+                writtenDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info(REBUILT, rebuilt.names.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Counts products per category name.
+     *
+     * @param filter Ids of products to count, null to count all.
+     * @return Category names with their product counts, categories without matching products are left out.
+     */
+    public SortedMap<String, Long> count(@Nullable RoaringBitmap filter) {
+        SortedMap<String, Long> counts = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            facets.bitmaps.forEach((id, bitmap) -> {
+                long count = filter == null ? bitmap.getLongCardinality() : RoaringBitmap.andCardinality(filter, bitmap);
+                String name = facets.names.get(id);
+                if (count > 0 && name != null) {
+                    counts.merge(name, count, Long::sum);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    /**
+     * @return Ids of products in any of the named categories.
+     */
+    @NotNull
+    public RoaringBitmap productsOf(@NotNull Collection<String> categoryNames) {
+        lock.readLock().lock();
+        try {
+            return RoaringBitmap.or(facets.names.entrySet()
+                    .stream()
+                    .filter(entry -> categoryNames.contains(entry.getValue()))
+                    .map(entry -> facets.bitmaps.get(entry.getKey()))
+                    .filter(Objects::nonNull)
+                    .iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(@NotNull ProductsChangedEvent event) {
+        write(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriesChanged(@NotNull CategoriesChangedEvent event) {
+        write(event);
+    }
+
+    private void write(Object event) {
+        lock.writeLock().lock();
+        try {
+            facets.apply(event);
+            if (writtenDuringRebuild != null) {
+                writtenDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean fits(long id) {
+        if (id >= 0 && id <= Integer.MAX_VALUE) {
+            return true;
+        }
+        log.warn(OUT_OF_RANGE, id);
+        return false;
+    }
+
+    /**
+     * Bitmaps, category names and categories of each product. Applying the same write twice leaves the same
+     * state, so writes seen by a rebuild scan can be applied to its result again.
+     */
+    private static final class Facets {
+
+        private final Map<Long, RoaringBitmap> bitmaps = new HashMap<>();
+        private final Map<Long, String> names = new HashMap<>();
+        private final Map<Integer, long[]> categoriesOf = new HashMap<>();
+
+        private void apply(Object event) {
+            if (event instanceof ProductsChangedEvent products) {
+                products.deleted().stream().filter(CategoryFacetIndex::fits).forEach(id -> unlink(id.intValue()));
+                products.saved().stream().filter(product -> fits(product.id())).forEach(product -> {
+                    product.categories().forEach(names::put);
+                    unlink(product.id().intValue());
+                    link(product.id().intValue(),
+                            product.categories().keySet().stream().mapToLong(Long::longValue).toArray());
+                });
+            } else if (event instanceof CategoriesChangedEvent categories) {
+                categories.saved().forEach(category -> names.put(category.id(), category.name()));
+                categories.deleted().forEach(id -> {
+                    names.remove(id);
+                    bitmaps.remove(id);
+                });
+            }
+        }
+
+        private void link(int productId, long @NotNull [] categoryIds) {
+            if (categoryIds.length == 0) {
+                return;
+            }
+            categoriesOf.put(productId, categoryIds);
+            for (long categoryId : categoryIds) {
+                bitmaps.computeIfAbsent(categoryId, id -> new RoaringBitmap()).add(productId);
+            }
+        }
+
+        private void unlink(int productId) {
+            for (long categoryId : categoriesOf.getOrDefault(productId, NO_CATEGORIES)) {
+                RoaringBitmap bitmap = bitmaps.get(categoryId);
+                if (bitmap != null) {
+                    bitmap.remove(productId);
+                }
+            }
+            categoriesOf.remove(productId);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.hetacz.productmanager.search;
+
+import com.hetacz.productmanager.paging.KeysetPage;
+import com.hetacz.productmanager.paging.KeysetPager;
+import com.hetacz.productmanager.product.Product;
+import com.hetacz.productmanager.product.ProductsChangedEvent;
+import jakarta.persistence.Tuple;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-memory trigram index over product names and descriptions, used instead of {@code LIKE '%x%'} scans.
+ * Built from the database on startup and kept up to date by {@link ProductsChangedEvent}s,
+ * which are applied once the writing transaction commits.
+ * Until the index is built, or for queries it cannot answer, {@link #find(Field, String)} returns empty
+ * and callers fall back to the database.
+ * A rebuild fills new indexes while the current ones keep answering, and replaces them once it is done.
+ */
+@Slf4j
+@Component
+public class ProductTextIndex {
+
+    private static final List<String> ATTRIBUTES = List.of("id", "name", "description");
+    private static final int REBUILD_PAGE = 1000;
+    private static final String REBUILT = "Text index rebuilt with {} products in {} ms";
+    private final Object writes = new Object();
+    private final KeysetPager pager;
+    private final int maxCandidates;
+    private volatile TrigramIndex names = new TrigramIndex();
+    private volatile TrigramIndex descriptions = new TrigramIndex();
+    private volatile boolean ready;
+    private List<ProductsChangedEvent> writtenDuringRebuild;
+
+    @Contract(pure = true)
+    public ProductTextIndex(KeysetPager pager,
+            @Value("${productmanager.search.max-candidates:10000}") int maxCandidates) {
+        this.pager = pager;
+        this.maxCandidates = maxCandidates;
+    }
+
+    public enum Field {
+        NAME, DESCRIPTION
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index by scanning id, name and description of all products into new indexes.
+     * Writes committed while the scan runs are applied to the current indexes and kept, then applied again to
+     * the new ones before they replace the current ones, so a product written meanwhile is never missing.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (writes) {
+            writtenDuringRebuild = new ArrayList<>();
+        }
+        TrigramIndex rebuiltNames = new TrigramIndex();
+        TrigramIndex rebuiltDescriptions = new TrigramIndex();
+        boolean built = false;
+        try {
+            String cursor = null;
+            do {
+                KeysetPage<Tuple> page = pager.fetchTuples(Product.class, null, ATTRIBUTES, null, null, cursor,
+                        REBUILD_PAGE);
+                page.items().forEach(tuple -> {
+                    Long id = tuple.get("id", Long.class);
+                    rebuiltNames.put(id, tuple.get("name", String.class));
+                    rebuiltDescriptions.put(id, tuple.get("description", String.class));
+                });
+                cursor = page.nextCursor();
+            } while (cursor != null);
+            built = true;
+        } finally {
+            synchronized (writes) {
+                if (built) {
+                    writtenDuringRebuild.forEach(event -> apply(event, rebuiltNames, rebuiltDescriptions));
+                    names = rebuiltNames;
+                    descriptions = rebuiltDescriptions;
+                    ready = true;
+                }
+                writtenDuringRebuild = null;
+            }
+        }
+        log.info(REBUILT, rebuiltNames.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Finds ids of products whose field contains the query, ignoring case.
+     *
+     * @return Exact ids of matching products, or empty if the index cannot answer the query.
+     */
+    public Optional<Set<Long>> find(@NotNull Field field, @NotNull String query) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        return (field == Field.NAME ? names : descriptions).find(query, maxCandidates);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(@NotNull ProductsChangedEvent event) {
+        synchronized (writes) {
+            apply(event, names, descriptions);
+            if (writtenDuringRebuild != null) {
+                writtenDuringRebuild.add(event);
+            }
+        }
+    }
+
+    private static void apply(@NotNull ProductsChangedEvent event, TrigramIndex names, TrigramIndex descriptions) {
+        event.saved().forEach(product -> {
+            names.put(product.id(), product.name());
+            descriptions.put(product.id(), product.description());
+        });
+        event.deleted().forEach(id -> {
+            names.remove(id);
+            descriptions.remove(id);
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package com.hetacz.productmanager.search;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Inverted index from lower-cased character trigrams to ids of documents containing them.
+ * Answers case-insensitive substring queries of at least three characters: posting lists of the query trigrams
+ * are intersected, and each candidate is verified against its indexed text, so results are exact.
+ * Reads are lock free, writes are serialized.
+ */
+class TrigramIndex {
+
+    static final int GRAM = 3;
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String> texts = new ConcurrentHashMap<>();
+
+    @NotNull
+    static String normalize(@NotNull String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    @NotNull
+    static Set<String> trigrams(@NotNull String normalized) {
+        return IntStream.rangeClosed(0, normalized.length() - GRAM)
+                .mapToObj(i -> normalized.substring(i, i + GRAM))
+                .collect(Collectors.toSet());
+    }
+
+    synchronized void put(Long id, String text) {
+        remove(id);
+        if (text == null) {
+            return;
+        }
+        String normalized = normalize(text);
+        texts.put(id, normalized);
+        trigrams(normalized).forEach(gram -> postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet())
+                .add(id));
+    }
+
+    synchronized void remove(Long id) {
+        String previous = texts.remove(id);
+        if (previous == null) {
+            return;
+        }
+        trigrams(previous).forEach(gram -> postings.computeIfPresent(gram, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        }));
+    }
+
+    boolean contains(Long id) {
+        return texts.containsKey(id);
+    }
+
+    int size() {
+        return texts.size();
+    }
+
+    /**
+     * Finds ids of all documents containing the query, ignoring case.
+     *
+     * @param query         Substring to look for.
+     * @param maxCandidates Largest posting list worth intersecting.
+     * @return Matching ids, or empty if the query is shorter than a trigram or too unselective to be answered here.
+     */
+    Optional<Set<Long>> find(@NotNull String query, int maxCandidates) {
+        String normalized = normalize(query);
+        if (normalized.length() < GRAM) {
+            return Optional.empty();
+        }
+        List<Set<Long>> lists = trigrams(normalized).stream()
+                .map(gram -> postings.getOrDefault(gram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .toList();
+        Set<Long> smallest = lists.get(0);
+        if (smallest.size() > maxCandidates) {
+            return Optional.empty();
+        }
+        Set<Long> result = new HashSet<>();
+        for (Long id : smallest) {
+            if (lists.stream().skip(1).allMatch(ids -> ids.contains(id))) {
+                String text = texts.get(id);
+                if (text != null && text.contains(normalized)) {
+                    result.add(id);
+                }
+            }
+        }
+        return Optional.of(result);
+    }
+}
@@ -0,0 +1,16 @@
+package com.hetacz.productmanager.websocket;
+
+import java.util.List;
+
+/**
+ * Changes missed by a subscriber.
+ *
+ * @param events       Changes after the requested sequence, in order.
+ * @param lastSequence Sequence of the latest change, 0 if there was none.
+ * @param resnapshot   True if changes after the requested sequence are no longer kept, or were numbered
+ *                     by a previous start of the server, so the subscriber has to fetch the current state again.
+ * @param epoch        Startup time of the server in epoch millis, sequences restart from 1 with every epoch.
+ */
+public record ChangeBatch(List<ChangeEvent> events, long lastSequence, boolean resnapshot, long epoch) {
+
+}
@@ -0,0 +1,26 @@
+package com.hetacz.productmanager.websocket;
+
+import java.util.Map;
+
+/**
+ * Committed change of a single product or category, as sent on the change topics.
+ *
+ * @param sequence Position in the change stream, increasing by one with every change.
+ * @param entity   Kind of the changed entity.
+ * @param type     Kind of the change.
+ * @param id       Id of the changed entity.
+ * @param fields   State of the entity after the change, empty for deletes.
+ * @param version  Catalog version once the change was applied, as used for entity tags.
+ * @param epoch    Startup time of the server in epoch millis, sequences restart from 1 with every epoch.
+ */
+public record ChangeEvent(long sequence, Entity entity, Type type, Long id, Map<String, Object> fields,
+        long version, long epoch) {
+
+    public enum Entity {
+        PRODUCT, CATEGORY
+    }
+
+    public enum Type {
+        SAVED, DELETED
+    }
+}
@@ -0,0 +1,220 @@
+package com.hetacz.productmanager.websocket;
+
+import com.hetacz.productmanager.cache.CatalogVersion;
+import com.hetacz.productmanager.category.CategoriesChangedEvent;
+import com.hetacz.productmanager.product.ProductsChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Numbers committed changes and sends them to {@code /topic/product/} and {@code /topic/category/}
+ * as batches of up to {@code productmanager.websocket.max-batch-size} changes, one batch per write where it fits,
+ * and each change on its own to the topic of the changed entity, e.g. {@code /topic/product/42}.
+ * With a {@code productmanager.websocket.coalesce-window}, changes are held for the window and
+ * repeated changes of the same entity are merged into the latest one, leaving gaps in the live sequence.
+ * The latest changes are kept in a bounded ring, so a subscriber that reconnects can ask for what it missed
+ * since the last sequence it has seen, or learn that it has to fetch the current state again.
+ * Sequences restart with every start of the server, so they are qualified by an epoch, the startup time.
+ */
+@Component
+public class ChangeStream {
+
+    public static final String PRODUCT_TOPIC = "/topic/product/";
+    public static final String CATEGORY_TOPIC = "/topic/category/";
+    private final ChangeEvent[] ring;
+    private final EventDispatcher dispatcher;
+    private final CatalogVersion catalogVersion;
+    private final int maxBatchSize;
+    private final long epoch;
+    private final ScheduledExecutorService coalescer;
+    private final Counter batches;
+    private final Counter coalesced;
+    private Map<Key, ChangeEvent> pending = new LinkedHashMap<>();
+    private long lastSequence;
+
+    public ChangeStream(EventDispatcher dispatcher, CatalogVersion catalogVersion, MeterRegistry registry,
+            @Value("${productmanager.websocket.change-ring-size:10000}") int ringSize,
+            @Value("${productmanager.websocket.max-batch-size:500}") int maxBatchSize,
+            @Value("${productmanager.websocket.coalesce-window:0ms}") Duration coalesceWindow) {
+        this.ring = new ChangeEvent[ringSize];
+        this.dispatcher = dispatcher;
+        this.catalogVersion = catalogVersion;
+        this.maxBatchSize = maxBatchSize;
+        this.epoch = catalogVersion.catalog().started();
+        this.batches = Counter.builder("websocket.changes.batches")
+                .description("Batches of changes sent to the collection topics")
+                .register(registry);
+        this.coalesced = Counter.builder("websocket.changes.coalesced")
+                .description("Changes not sent because a later change of the same entity replaced them")
+                .register(registry);
+        if (coalesceWindow.isZero()) {
+            this.coalescer = null;
+        } else {
+            this.coalescer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ws-coalesce-"));
+            coalescer.scheduleWithFixedDelay(this::flush, coalesceWindow.toMillis(), coalesceWindow.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(@NotNull ProductsChangedEvent event) {
+        List<Change> changes = new ArrayList<>();
+        event.saved().forEach(product -> {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("name", product.name());
+            fields.put("description", product.description());
+            fields.put("price", product.price());
+            fields.put("categories", product.categories());
+            fields.put("modified", product.modified());
+            changes.add(new Change(ChangeEvent.Type.SAVED, product.id(), fields));
+        });
+        event.deleted().forEach(id -> changes.add(new Change(ChangeEvent.Type.DELETED, id, Map.of())));
+        publish(ChangeEvent.Entity.PRODUCT, changes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriesChanged(@NotNull CategoriesChangedEvent event) {
+        List<Change> changes = new ArrayList<>();
+        event.saved().forEach(category -> changes.add(new Change(ChangeEvent.Type.SAVED, category.id(),
+                Map.of("name", category.name()))));
+        event.deleted().forEach(id -> changes.add(new Change(ChangeEvent.Type.DELETED, id, Map.of())));
+        publish(ChangeEvent.Entity.CATEGORY, changes);
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * @param epoch  Epoch of the last change the subscriber has seen.
+     * @param after  Last sequence the subscriber has seen, 0 for all kept changes.
+     * @param entity Kind of entity to return changes of.
+     * @return Changes after the given sequence, or a request to resnapshot if some of them are no longer kept,
+     * or the sequence was numbered by a previous start of the server.
+     */
+    public ChangeBatch since(long epoch, long after, ChangeEvent.Entity entity) {
+        if (after > 0 && epoch != this.epoch) {
+            return resnapshot();
+        }
+        return since(after, entity);
+    }
+
+    /**
+     * As {@link #since(long, long, ChangeEvent.Entity)} for a subscriber that did not keep the epoch,
+     * a sequence from a previous start of the server is only detected if it is above the last one.
+     */
+    public synchronized ChangeBatch since(long after, ChangeEvent.Entity entity) {
+        long first = Math.max(after + 1, 1);
+        if (first <= lastSequence - ring.length || after > lastSequence) {
+            return resnapshot();
+        }
+        List<ChangeEvent> events = new ArrayList<>();
+        for (long sequence = first; sequence <= lastSequence; sequence++) {
+            ChangeEvent event = ring[indexOf(sequence)];
+            if (event.entity() == entity) {
+                events.add(event);
+            }
+        }
+        return new ChangeBatch(events, lastSequence, false, epoch);
+    }
+
+    /**
+     * Sends changes held for the coalescing window.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<ChangeEvent.Entity, List<ChangeEvent>> byEntity = new LinkedHashMap<>();
+        pending.values().forEach(event -> byEntity.computeIfAbsent(event.entity(), entity -> new ArrayList<>())
+                .add(event));
+        pending = new LinkedHashMap<>();
+        byEntity.forEach(this::send);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+            flush();
+        }
+    }
+
+    /**
+     * Numbers the changes and queues them for sending while holding the lock,
+     * so subscribers receive changes in sequence order.
+     */
+    private synchronized void publish(ChangeEvent.Entity entity, @NotNull List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        long version = catalogVersion.current();
+        List<ChangeEvent> events = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            ChangeEvent event = new ChangeEvent(++lastSequence, entity, change.type(), change.id(), change.fields(),
+                    version, epoch);
+            ring[indexOf(event.sequence())] = event;
+            events.add(event);
+        }
+        if (coalescer == null) {
+            send(entity, events);
+            return;
+        }
+        events.forEach(event -> {
+            Key key = new Key(entity, event.id());
+            if (pending.remove(key) != null) {
+                coalesced.increment();
+            }
+            pending.put(key, event);
+        });
+    }
+
+    private void send(ChangeEvent.Entity entity, @NotNull List<ChangeEvent> events) {
+        String topic = topicOf(entity);
+        for (int from = 0; from < events.size(); from += maxBatchSize) {
+            List<ChangeEvent> batch = List.copyOf(events.subList(from, Math.min(from + maxBatchSize, events.size())));
+            long last = batch.get(batch.size() - 1).sequence();
+            if (dispatcher.dispatch(topic, () -> new ChangeBatch(batch, last, false, epoch))) {
+                batches.increment();
+            }
+        }
+        events.forEach(event -> dispatcher.dispatch(topic + event.id(), () -> event));
+    }
+
+    private synchronized @NotNull ChangeBatch resnapshot() {
+        return new ChangeBatch(List.of(), lastSequence, true, epoch);
+    }
+
+    private int indexOf(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+
+    @Contract(pure = true)
+    private static String topicOf(ChangeEvent.Entity entity) {
+        return entity == ChangeEvent.Entity.PRODUCT ? PRODUCT_TOPIC : CATEGORY_TOPIC;
+    }
+
+    private record Change(ChangeEvent.Type type, Long id, Map<String, Object> fields) {
+
+    }
+
+    private record Key(ChangeEvent.Entity entity, Long id) {
+
+    }
+}
@@ -0,0 +1,122 @@
+package com.hetacz.productmanager.websocket;
+
+import com.hetacz.productmanager.concurrency.VirtualThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends messages to broker destinations from a single background thread, in the order they were dispatched.
+ * Callers only enqueue, so sending never adds latency to a request.
+ * The queue is bounded; when it is full new messages are dropped and counted.
+ * Payloads are built on the dispatch thread, so they must not need an open persistence context.
+ * Messages to destinations without subscribers are skipped before they are queued, so their payloads are never built.
+ */
+@Slf4j
+@Component
+public class EventDispatcher {
+
+    private static final String DROPPED = "Dispatch queue full, dropped message to: {}";
+    private static final String FAILED = "Failed to send message to: {}";
+    private static final byte[] EMPTY = new byte[0];
+    private final SimpMessagingTemplate template;
+    private final ObjectProvider<SimpleBrokerMessageHandler> broker;
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+    private final Counter sent;
+    private final Counter dropped;
+    private final Counter skipped;
+
+    public EventDispatcher(SimpMessagingTemplate template, ObjectProvider<SimpleBrokerMessageHandler> broker,
+            MeterRegistry registry,
+            @Value("${productmanager.websocket.dispatch.queue-capacity:10000}") int queueCapacity,
+            @Value("${productmanager.virtual-threads.enabled:false}") boolean virtualThreads) {
+        this.template = template;
+        this.broker = broker;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue,
+                VirtualThreads.factory("ws-dispatch-", virtualThreads), new ThreadPoolExecutor.AbortPolicy());
+        this.sent = Counter.builder("websocket.dispatch.sent")
+                .description("Messages sent to the broker")
+                .register(registry);
+        this.dropped = Counter.builder("websocket.dispatch.dropped")
+                .description("Messages dropped because the dispatch queue was full")
+                .register(registry);
+        this.skipped = Counter.builder("websocket.dispatch.skipped")
+                .description("Messages not built because nobody was subscribed to their destination")
+                .register(registry);
+        Gauge.builder("websocket.dispatch.queue", queue, BlockingQueue::size)
+                .description("Messages waiting to be sent to the broker")
+                .register(registry);
+    }
+
+    /**
+     * Queues a message, without waiting for it to be built or sent.
+     *
+     * @param destination Broker destination.
+     * @param payload     Builds the payload on the dispatch thread.
+     * @return false if nobody was subscribed to the destination, or the queue was full and the message was dropped.
+     */
+    public boolean dispatch(String destination, @NotNull Supplier<?> payload) {
+        if (!hasSubscribers(destination)) {
+            skipped.increment();
+            return false;
+        }
+        try {
+            executor.execute(() -> send(destination, payload));
+            return true;
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn(DROPPED, destination);
+            return false;
+        }
+    }
+
+    /**
+     * Looks the destination up in the subscription registry of the simple broker.
+     * Assumes there are subscribers if the broker is not the simple one, which does not expose its subscriptions.
+     */
+    public boolean hasSubscribers(String destination) {
+        SimpleBrokerMessageHandler handler = broker.getIfAvailable();
+        if (handler == null) {
+            return true;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        Message<byte[]> message = MessageBuilder.createMessage(EMPTY, accessor.getMessageHeaders());
+        return !handler.getSubscriptionRegistry().findSubscriptions(message).isEmpty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void send(String destination, @NotNull Supplier<?> payload) {
+        try {
+            template.convertAndSend(destination, payload.get());
+            sent.increment();
+        } catch (RuntimeException e) {
+            log.error(FAILED, destination, e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.hetacz.productmanager.websocket;
+
+/**
+ * Read endpoints that can announce their results on the websocket topics,
+ * enabled with {@code productmanager.websocket.read-broadcasts}.
+ */
+public enum ReadBroadcast {
+    PRODUCT, PRODUCTS, PRODUCT_STREAM, CATEGORY, CATEGORIES
+}
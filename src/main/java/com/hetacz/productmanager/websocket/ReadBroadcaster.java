@@ -0,0 +1,40 @@
+package com.hetacz.productmanager.websocket;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Announces results of reads on the websocket topics, only for endpoints listed in
+ * {@code productmanager.websocket.read-broadcasts}, none by default.
+ * A read that is not broadcast costs nothing beyond the query and the response.
+ */
+@Component
+public class ReadBroadcaster {
+
+    private final EventDispatcher dispatcher;
+    private final Set<ReadBroadcast> enabled;
+
+    public ReadBroadcaster(EventDispatcher dispatcher,
+            @Value("${productmanager.websocket.read-broadcasts:}") Set<ReadBroadcast> enabled) {
+        this.dispatcher = dispatcher;
+        this.enabled = enabled.isEmpty() ? EnumSet.noneOf(ReadBroadcast.class) : EnumSet.copyOf(enabled);
+    }
+
+    public boolean isEnabled(ReadBroadcast endpoint) {
+        return enabled.contains(endpoint);
+    }
+
+    /**
+     * Dispatches the payload if the endpoint is enabled, it is built only if the destination has subscribers.
+     */
+    public void broadcast(ReadBroadcast endpoint, String destination, @NotNull Supplier<?> payload) {
+        if (isEnabled(endpoint)) {
+            dispatcher.dispatch(destination, payload);
+        }
+    }
+}
@@ -1,16 +1,57 @@
 package com.hetacz.productmanager.websocket;
 
+import com.hetacz.productmanager.concurrency.VirtualThreads;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * STOMP over SockJS with the simple broker.
+ * Inbound and outbound channels run on bounded executors. A session that cannot take messages as fast as they
+ * are sent, buffering more than the send buffer limit or blocking a send longer than the time limit,
+ * is closed instead of holding up other sessions.
+ * With {@code productmanager.virtual-threads.enabled} channel executors run their tasks on virtual threads,
+ * the pool sizes still bound how many run at once.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final ChannelPool inbound;
+    private final ChannelPool outbound;
+    private final int sendBufferSizeLimit;
+    private final int sendTimeLimit;
+    private final int messageSizeLimit;
+    private final boolean virtualThreads;
+
+    public WebSocketConfig(
+            @Value("${productmanager.websocket.inbound.core-pool-size:4}") int inboundCorePoolSize,
+            @Value("${productmanager.websocket.inbound.max-pool-size:8}") int inboundMaxPoolSize,
+            @Value("${productmanager.websocket.inbound.queue-capacity:1000}") int inboundQueueCapacity,
+            @Value("${productmanager.websocket.outbound.core-pool-size:4}") int outboundCorePoolSize,
+            @Value("${productmanager.websocket.outbound.max-pool-size:8}") int outboundMaxPoolSize,
+            @Value("${productmanager.websocket.outbound.queue-capacity:10000}") int outboundQueueCapacity,
+            @Value("${productmanager.websocket.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+            @Value("${productmanager.websocket.send-time-limit:10000}") int sendTimeLimit,
+            @Value("${productmanager.websocket.message-size-limit:65536}") int messageSizeLimit,
+            @Value("${productmanager.virtual-threads.enabled:false}") boolean virtualThreads) {
+        this.inbound = new ChannelPool("clientInboundChannel-", inboundCorePoolSize, inboundMaxPoolSize,
+                inboundQueueCapacity);
+        this.outbound = new ChannelPool("clientOutboundChannel-", outboundCorePoolSize, outboundMaxPoolSize,
+                outboundQueueCapacity);
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.sendTimeLimit = sendTimeLimit;
+        this.messageSizeLimit = messageSizeLimit;
+        this.virtualThreads = virtualThreads;
+    }
+
     @Override
     public void registerStompEndpoints(@NotNull StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
@@ -22,4 +63,41 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setApplicationDestinationPrefixes("/app");
         registry.enableSimpleBroker("/topic");
     }
+
+    @Override
+    public void configureClientInboundChannel(@NotNull ChannelRegistration registration) {
+        inbound.applyTo(registration, virtualThreads);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NotNull ChannelRegistration registration) {
+        outbound.applyTo(registration, virtualThreads);
+    }
+
+    @Override
+    public void configureWebSocketTransport(@NotNull WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    private record ChannelPool(String threadNamePrefix, int corePoolSize, int maxPoolSize, int queueCapacity) {
+
+        void applyTo(@NotNull ChannelRegistration registration, boolean virtualThreads) {
+            if (!virtualThreads) {
+                registration.taskExecutor()
+                        .corePoolSize(corePoolSize)
+                        .maxPoolSize(maxPoolSize)
+                        .queueCapacity(queueCapacity);
+                return;
+            }
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadFactory(VirtualThreads.factory(threadNamePrefix));
+            executor.setCorePoolSize(corePoolSize);
+            executor.setMaxPoolSize(maxPoolSize);
+            executor.setQueueCapacity(queueCapacity);
+            executor.setAllowCoreThreadTimeOut(true);
+            registration.taskExecutor(executor);
+        }
+    }
 }
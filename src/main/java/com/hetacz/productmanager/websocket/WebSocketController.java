@@ -4,6 +4,7 @@ import org.jetbrains.annotations.Contract;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
 @Controller
@@ -13,10 +14,12 @@ public class WebSocketController {
     private static final String PRODUCT = "product/";
     private static final String CATEGORY = "category/";
     private final SimpMessagingTemplate template;
+    private final ChangeStream changeStream;
 
     @Contract(pure = true)
-    public WebSocketController(SimpMessagingTemplate template) {
+    public WebSocketController(SimpMessagingTemplate template, ChangeStream changeStream) {
         this.template = template;
+        this.changeStream = changeStream;
     }
 
     @MessageMapping("/product/{id}")
@@ -29,6 +32,41 @@ public class WebSocketController {
         sendUpdate(TOPIC + CATEGORY + "{id}", id);
     }
 
+    /**
+     * Replies to subscribing to {@code /app/changes/product/{epoch}/{after}} with product changes after the given
+     * sequence of the given epoch. Subscribe to {@code /topic/product/} first and skip live changes of the same epoch
+     * already contained in the reply.
+     */
+    @SubscribeMapping("/changes/product/{epoch}/{after}")
+    public ChangeBatch productChangesSince(@DestinationVariable long epoch, @DestinationVariable long after) {
+        return changeStream.since(epoch, after, ChangeEvent.Entity.PRODUCT);
+    }
+
+    /**
+     * Replies to subscribing to {@code /app/changes/category/{epoch}/{after}} with category changes after the given
+     * sequence of the given epoch.
+     */
+    @SubscribeMapping("/changes/category/{epoch}/{after}")
+    public ChangeBatch categoryChangesSince(@DestinationVariable long epoch, @DestinationVariable long after) {
+        return changeStream.since(epoch, after, ChangeEvent.Entity.CATEGORY);
+    }
+
+    /**
+     * Replies to subscribing to {@code /app/changes/product/{after}}, for subscribers that did not keep the epoch.
+     */
+    @SubscribeMapping("/changes/product/{after}")
+    public ChangeBatch productChangesSince(@DestinationVariable long after) {
+        return changeStream.since(after, ChangeEvent.Entity.PRODUCT);
+    }
+
+    /**
+     * Replies to subscribing to {@code /app/changes/category/{after}}, for subscribers that did not keep the epoch.
+     */
+    @SubscribeMapping("/changes/category/{after}")
+    public ChangeBatch categoryChangesSince(@DestinationVariable long after) {
+        return changeStream.since(after, ChangeEvent.Entity.CATEGORY);
+    }
+
     private void sendUpdate(String message, String id) {
         template.convertAndSend(message, id);
     }
@@ -0,0 +1,59 @@
+package com.hetacz.productmanager.websocket;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes session and STOMP frame counts of the broker stats as gauges.
+ * Messages dispatched by the application are counted by {@link EventDispatcher}.
+ * Channel executors are published by Spring Boot as {@code executor.*} meters, tagged by executor name.
+ */
+@Component
+public class WebSocketMetrics implements MeterBinder {
+
+    private final WebSocketMessageBrokerStats stats;
+
+    public WebSocketMetrics(WebSocketMessageBrokerStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void bindTo(@NotNull MeterRegistry registry) {
+        session(registry, "total", SubProtocolWebSocketHandler.Stats::getTotalSessions);
+        session(registry, "websocket", SubProtocolWebSocketHandler.Stats::getWebSocketSessions);
+        session(registry, "http-streaming", SubProtocolWebSocketHandler.Stats::getHttpStreamingSessions);
+        session(registry, "http-polling", SubProtocolWebSocketHandler.Stats::getHttpPollingSessions);
+        session(registry, "limit-exceeded", SubProtocolWebSocketHandler.Stats::getLimitExceededSessions);
+        session(registry, "no-messages-received",
+                SubProtocolWebSocketHandler.Stats::getNoMessagesReceivedInTimeSessions);
+        session(registry, "transport-error", SubProtocolWebSocketHandler.Stats::getTransportErrorSessions);
+        stomp(registry, "connect", StompSubProtocolHandler.Stats::getTotalConnect);
+        stomp(registry, "connected", StompSubProtocolHandler.Stats::getTotalConnected);
+        stomp(registry, "disconnect", StompSubProtocolHandler.Stats::getTotalDisconnect);
+    }
+
+    private void session(MeterRegistry registry, String type,
+            ToDoubleFunction<SubProtocolWebSocketHandler.Stats> value) {
+        Gauge.builder("websocket.sessions", stats, current -> current.getWebSocketSessionStats() == null
+                        ? 0 : value.applyAsDouble(current.getWebSocketSessionStats()))
+                .description("Open sessions by transport, and sessions closed by limits or errors since startup")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    private void stomp(MeterRegistry registry, String frame, ToDoubleFunction<StompSubProtocolHandler.Stats> value) {
+        Gauge.builder("websocket.stomp.frames", stats, current -> current.getStompSubProtocolStats() == null
+                        ? 0 : value.applyAsDouble(current.getStompSubProtocolStats()))
+                .description("STOMP frames handled since startup")
+                .tag("frame", frame)
+                .register(registry);
+    }
+}
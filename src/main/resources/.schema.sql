@@ -9,7 +9,8 @@ create TABLE PRODUCT (
 
 create TABLE CATEGORY (
     ID BIGINT PRIMARY KEY AUTO_INCREMENT,
-    NAME VARCHAR(255) NOT NULL
+    NAME VARCHAR(255) NOT NULL,
+    CONSTRAINT UK_CATEGORY_NAME UNIQUE (NAME)
 );
 
 create TABLE PRODUCT_CATEGORIES (
@@ -19,3 +20,8 @@ create TABLE PRODUCT_CATEGORIES (
     FOREIGN KEY (CATEGORY_ID) REFERENCES CATEGORY(ID),
     PRIMARY KEY (PRODUCT_ID, CATEGORY_ID)
 );
+
+create INDEX IDX_PRODUCT_NAME_ID ON PRODUCT (NAME, ID);
+create INDEX IDX_PRODUCT_PRICE_ID ON PRODUCT (PRICE, ID);
+create INDEX IDX_PRODUCT_CREATED_ID ON PRODUCT (CREATED, ID);
+create INDEX IDX_PRODUCT_MODIFIED_ID ON PRODUCT (MODIFIED, ID);
@@ -0,0 +1,132 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.category.Category;
+import com.hetacz.productmanager.category.CategoryDictionary;
+import com.hetacz.productmanager.category.CategoryRepository;
+import com.hetacz.productmanager.category.CategoryResolver;
+import com.hetacz.productmanager.category.CategoryService;
+import com.hetacz.productmanager.product.ProductDto;
+import com.hetacz.productmanager.product.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Adds products and categories with the same new category names from many threads at once, through the services
+ * and through a second resolver with a dictionary of its own, as another instance of the application would,
+ * and checks that every name was created exactly once. There are more threads than pooled connections,
+ * so a write that needed a second connection to create a category would time out waiting for it.
+ */
+@Slf4j
+@DirtiesContext
+@ActiveProfiles("test")
+@SpringBootTest(classes = ProductmanagerApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:categories;NON_KEYWORDS=USER;MODE=MYSQL;",
+        "spring.datasource.hikari.maximum-pool-size=" + CategoryConcurrencyTest.CONNECTIONS,
+        "spring.datasource.hikari.connection-timeout=5000",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.hetacz=INFO"
+})
+class CategoryConcurrencyTest {
+
+    static final int CONNECTIONS = 4;
+    private static final int THREADS = 4 * CONNECTIONS;
+    private static final int NAMES = 20;
+    private static final int ROUNDS = 25;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Test
+    void createEveryCategoryOnce() throws Exception {
+        MeterRegistry otherRegistry = new SimpleMeterRegistry();
+        CategoryResolver other = new CategoryResolver(categoryRepository, new CategoryDictionary(transactionManager),
+                transactionManager, publisher, otherRegistry, 4);
+        int categories = categoryRepository.findAll().size();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return work(thread, other);
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        List<Map<String, Long>> results = new ArrayList<>();
+        for (Future<Map<String, Long>> future : futures) {
+            results.add(future.get(2, TimeUnit.MINUTES));
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        Map<String, List<Long>> byName = categoryRepository.findAll().stream()
+                .collect(Collectors.groupingBy(Category::getName,
+                        Collectors.mapping(Category::getId, Collectors.toList())));
+        assertEquals(categories + NAMES, byName.size());
+        byName.forEach((name, ids) -> assertEquals(1, ids.size(), name));
+        for (Map<String, Long> result : results) {
+            result.forEach((name, id) -> assertEquals(List.of(id), byName.get(name), name));
+            result.forEach((name, id) -> assertEquals(id, categoryDictionary.find(name).orElseThrow(), name));
+        }
+        log.info("{} get-or-create calls in {} ms, {} ops/s, {} conflicts between instances",
+                THREADS * ROUNDS * NAMES, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                THREADS * ROUNDS * NAMES * 1_000_000_000L / elapsed,
+                otherRegistry.counter("catalog.categories.conflicts").count());
+    }
+
+    /**
+     * Every thread goes through all names in a different order, alternating between adding a product,
+     * adding a category and the resolver of the other instance.
+     *
+     * @return Ids the thread got for each name.
+     */
+    private Map<String, Long> work(int thread, CategoryResolver other) {
+        Map<String, Long> ids = new HashMap<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < NAMES; i++) {
+                String name = "Concurrent %d".formatted((i + thread) % NAMES);
+                Long id = switch ((round + thread) % 3) {
+                    case 0 -> productService.addProduct(ProductDto.of("Product %d-%d-%d".formatted(thread, round, i),
+                                    "Concurrency test", 100L, List.of(name)))
+                            .getCategories().first().getId();
+                    case 1 -> categoryService.addCategory(new Category(name)).getId();
+                    default -> other.getOrCreate(name).getId();
+                };
+                assertEquals(ids.computeIfAbsent(name, key -> id), id, name);
+            }
+        }
+        return ids;
+    }
+}
@@ -1,20 +1,25 @@
 package com.hetacz.productmanager;
 
 import com.hetacz.productmanager.category.Category;
+import com.hetacz.productmanager.category.CategoryDictionary;
+import com.hetacz.productmanager.category.CategoryNameMigration;
 import com.hetacz.productmanager.category.CategoryRepository;
 import com.hetacz.productmanager.category.CategoryService;
+import com.hetacz.productmanager.product.DeletionResult;
 import com.hetacz.productmanager.product.ProductRepository;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
 @ActiveProfiles("test")
@@ -23,16 +28,45 @@ class CategoryServiceTest {
 
     private static final long ID_20005 = 20005L;
     private static final long ID_20001 = 20001L;
+    private static final long ID_MISSING = 99999L;
+    private static final long ID_DUPLICATE = 20006L;
     private static final String PRODUCT_CATEGORIES = "Product: {}, Categories: {}";
     private static final String TEST = "test";
     private static final String TEST_1 = "test1";
     private static final String TEST_2 = "test2";
+    private static final String GROCERY = "Grocery";
     @Autowired
     private CategoryService categoryService;
     @Autowired
     private ProductRepository productRepository;
     @Autowired
     private CategoryRepository categoryRepository;
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    @Autowired
+    private CategoryNameMigration categoryNameMigration;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DirtiesContext
+    void mergeDuplicateCategoriesBeforeAddingConstraint() {
+        jdbcTemplate.execute("ALTER TABLE category DROP CONSTRAINT UK_CATEGORY_NAME");
+        jdbcTemplate.update("INSERT INTO category (id, name) VALUES (?, ?)", ID_DUPLICATE, GROCERY);
+        jdbcTemplate.update("INSERT INTO product_categories (product_id, category_id) VALUES (10005, ?), (10002, ?)",
+                ID_DUPLICATE, ID_DUPLICATE);
+        assertEquals(1, categoryNameMigration.merge());
+        assertEquals(0, categoryNameMigration.merge());
+        jdbcTemplate.execute("ALTER TABLE category ADD CONSTRAINT UK_CATEGORY_NAME UNIQUE (name)");
+
+        assertEquals(List.of(ID_20005), jdbcTemplate.queryForList("SELECT id FROM category WHERE name = ?",
+                Long.class, GROCERY));
+        assertEquals(List.of(10001L, 10002L, 10005L, 10020L, 10021L), jdbcTemplate.queryForList(
+                "SELECT product_id FROM product_categories WHERE category_id = ? ORDER BY product_id", Long.class,
+                ID_20005));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_categories WHERE category_id = ?",
+                Integer.class, ID_DUPLICATE));
+    }
 
     @Test
     @DirtiesContext
@@ -54,7 +88,9 @@ class CategoryServiceTest {
     void deleteCategories() {
         String categoryName1 = categoryRepository.findById(ID_20001).orElseThrow().getName();
         String categoryName2 = categoryRepository.findById(ID_20005).orElseThrow().getName();
-        categoryService.deleteCategories(List.of(ID_20001, ID_20005));
+        DeletionResult result = categoryService.deleteCategories(List.of(ID_20001, ID_20005, ID_MISSING));
+        assertEquals(List.of(ID_20001, ID_20005), result.deleted());
+        assertEquals(List.of(ID_MISSING), result.missing());
         assertEquals(4, categoryRepository.findAll().size()); // cause OTHER added to products that would lose category
         assertEquals(0, productRepository.findAllByCategories_Name(categoryName1).size());
         assertEquals(0, productRepository.findAllByCategories_Name(categoryName2).size());
@@ -82,6 +118,15 @@ class CategoryServiceTest {
         assertEquals(7, categoryRepository.findAll().size());
     }
 
+    @Test
+    void findPageInitializesProducts() {
+        List<Category> categories = categoryService.findPage(null, 10).items();
+        assertEquals(5, categories.size());
+        // rendered outside of any transaction, would throw LazyInitializationException if not fetched
+        assertEquals(5, categories.get(0).getProducts().size());
+        assertEquals(4, categoryService.findById(ID_20005).getProducts().size());
+    }
+
     @Test
     @Transactional
     @DirtiesContext
@@ -89,4 +134,17 @@ class CategoryServiceTest {
         categoryService.updateCategory(ID_20005, TEST);
         assertEquals(TEST, categoryRepository.findById(ID_20005).orElseThrow().getName());
     }
+
+    @Test
+    @DirtiesContext
+    void keepDictionaryInSyncWithCategoryWrites() {
+        assertEquals(ID_20005, categoryDictionary.find(GROCERY).orElseThrow());
+        Category added = categoryService.addCategory(new Category(TEST));
+        assertEquals(added.getId(), categoryDictionary.find(TEST).orElseThrow());
+        categoryService.updateCategory(added.getId(), TEST_1);
+        assertTrue(categoryDictionary.find(TEST).isEmpty());
+        assertEquals(added.getId(), categoryDictionary.find(TEST_1).orElseThrow());
+        categoryService.deleteCategory(added.getId());
+        assertTrue(categoryDictionary.find(TEST_1).isEmpty());
+    }
 }
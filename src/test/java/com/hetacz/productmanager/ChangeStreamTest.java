@@ -0,0 +1,143 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.cache.CatalogVersion;
+import com.hetacz.productmanager.product.ProductsChangedEvent;
+import com.hetacz.productmanager.websocket.ChangeBatch;
+import com.hetacz.productmanager.websocket.ChangeEvent;
+import com.hetacz.productmanager.websocket.ChangeStream;
+import com.hetacz.productmanager.websocket.EventDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batching and coalescing of change events, with the dispatcher replaced by one recording what it is given.
+ * The coalescing window is longer than the test, changes are sent by calling {@code flush()}.
+ */
+class ChangeStreamTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+    private static final String BATCHES = "websocket.changes.batches";
+    private static final String COALESCED = "websocket.changes.coalesced";
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final RecordingDispatcher dispatcher = new RecordingDispatcher();
+    private ChangeStream changeStream;
+
+    @AfterEach
+    void shutdown() {
+        changeStream.shutdown();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void coalesceRepeatedChangesIntoLatest() {
+        changeStream = new ChangeStream(dispatcher, new CatalogVersion(), registry, 100, 500, WINDOW);
+        changeStream.onProductsChanged(saved(1L, "first"));
+        changeStream.onProductsChanged(saved(1L, "second"));
+        changeStream.onProductsChanged(saved(2L, "other"));
+        assertTrue(dispatcher.sent.isEmpty());
+        changeStream.flush();
+
+        List<ChangeBatch> batches = dispatcher.batches(ChangeStream.PRODUCT_TOPIC);
+        assertEquals(1, batches.size());
+        assertEquals(List.of(2L, 3L), batches.get(0).events().stream().map(ChangeEvent::sequence).toList());
+        assertEquals("second", batches.get(0).events().get(0).fields().get("name"));
+        assertEquals(3, batches.get(0).lastSequence());
+        assertEquals(List.of(2L), dispatcher.events(ChangeStream.PRODUCT_TOPIC + 1).stream()
+                .map(ChangeEvent::sequence)
+                .toList());
+        assertEquals(1, registry.counter(COALESCED).count());
+        assertEquals(1, registry.counter(BATCHES).count());
+    }
+
+    @Test
+    void keepEveryChangeForResume() {
+        changeStream = new ChangeStream(dispatcher, new CatalogVersion(), registry, 100, 500, WINDOW);
+        changeStream.onProductsChanged(saved(1L, "first"));
+        changeStream.onProductsChanged(saved(1L, "second"));
+        ChangeBatch missed = changeStream.since(0, ChangeEvent.Entity.PRODUCT);
+        assertEquals(List.of(1L, 2L), missed.events().stream().map(ChangeEvent::sequence).toList());
+        assertEquals("first", missed.events().get(0).fields().get("name"));
+    }
+
+    @Test
+    void splitBatchesAtMaxBatchSize() {
+        changeStream = new ChangeStream(dispatcher, new CatalogVersion(), registry, 100, 2, WINDOW);
+        changeStream.onProductsChanged(ProductsChangedEvent.deleted(List.of(1L, 2L, 3L, 4L, 5L)));
+        changeStream.flush();
+
+        List<ChangeBatch> batches = dispatcher.batches(ChangeStream.PRODUCT_TOPIC);
+        assertEquals(List.of(2, 2, 1), batches.stream().map(batch -> batch.events().size()).toList());
+        assertEquals(List.of(2L, 4L, 5L), batches.stream().map(ChangeBatch::lastSequence).toList());
+        assertEquals(3, registry.counter(BATCHES).count());
+        assertEquals(5, dispatcher.sent.size() - batches.size());
+    }
+
+    @Test
+    void sendEachWriteWithoutWindow() {
+        changeStream = new ChangeStream(dispatcher, new CatalogVersion(), registry, 100, 500, Duration.ZERO);
+        changeStream.onProductsChanged(saved(1L, "first"));
+        changeStream.onProductsChanged(saved(1L, "second"));
+
+        assertEquals(2, dispatcher.batches(ChangeStream.PRODUCT_TOPIC).size());
+        assertEquals(0, registry.counter(COALESCED).count());
+    }
+
+    private static @NotNull ProductsChangedEvent saved(Long id, String name) {
+        return new ProductsChangedEvent(List.of(new ProductsChangedEvent.ProductState(id, name, "description", 100L,
+                Map.of(), LocalDateTime.now())), List.of());
+    }
+
+    private record Sent(String destination, Object payload) {
+
+    }
+
+    /**
+     * Builds payloads as they are dispatched and records them, without a broker.
+     */
+    private static final class RecordingDispatcher extends EventDispatcher {
+
+        private final List<Sent> sent = new ArrayList<>();
+
+        private RecordingDispatcher() {
+            super(new SimpMessagingTemplate((message, timeout) -> true),
+                    new StaticListableBeanFactory().getBeanProvider(SimpleBrokerMessageHandler.class),
+                    new SimpleMeterRegistry(), 1, false);
+        }
+
+        @Override
+        public boolean dispatch(String destination, @NotNull Supplier<?> payload) {
+            sent.add(new Sent(destination, payload.get()));
+            return true;
+        }
+
+        private List<ChangeBatch> batches(String destination) {
+            return sent.stream()
+                    .filter(each -> each.destination().equals(destination))
+                    .map(each -> (ChangeBatch) each.payload())
+                    .toList();
+        }
+
+        private List<ChangeEvent> events(String destination) {
+            return sent.stream()
+                    .filter(each -> each.destination().equals(destination))
+                    .map(each -> (ChangeEvent) each.payload())
+                    .toList();
+        }
+    }
+}
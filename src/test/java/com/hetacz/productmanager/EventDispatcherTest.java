@@ -0,0 +1,101 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.websocket.EventDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counters of the dispatcher, against a simple broker with a single subscription and a channel that can be blocked.
+ */
+class EventDispatcherTest {
+
+    private static final String SUBSCRIBED = "/topic/product/";
+    private static final String UNSUBSCRIBED = "/topic/category/";
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void skipDestinationsWithoutSubscribers() {
+        AtomicInteger built = new AtomicInteger();
+        EventDispatcher dispatcher = new EventDispatcher(new SimpMessagingTemplate((message, timeout) -> true),
+                broker(), registry, 10, false);
+        assertFalse(dispatcher.dispatch(UNSUBSCRIBED, built::incrementAndGet));
+        dispatcher.shutdown();
+        assertEquals(0, built.get());
+        assertEquals(1, registry.counter("websocket.dispatch.skipped").count());
+    }
+
+    @Test
+    void dropMessagesWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch sent = new CountDownLatch(2);
+        MessageChannel channel = (message, timeout) -> {
+            sending.countDown();
+            try {
+                return release.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                sent.countDown();
+            }
+        };
+        EventDispatcher dispatcher = new EventDispatcher(new SimpMessagingTemplate(channel), broker(), registry, 1,
+                false);
+        assertTrue(dispatcher.dispatch(SUBSCRIBED, () -> "first"));
+        assertTrue(sending.await(1, TimeUnit.MINUTES));
+        assertTrue(dispatcher.dispatch(SUBSCRIBED, () -> "queued"));
+        assertFalse(dispatcher.dispatch(SUBSCRIBED, () -> "dropped"));
+        release.countDown();
+        assertTrue(sent.await(1, TimeUnit.MINUTES));
+        dispatcher.shutdown();
+
+        assertEquals(1, registry.counter("websocket.dispatch.dropped").count());
+        awaitCount("websocket.dispatch.sent", 2);
+    }
+
+    /**
+     * The counter is incremented after the message is handed to the channel, on the dispatch thread.
+     */
+    private void awaitCount(String name, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.counter(name).count() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, registry.counter(name).count());
+    }
+
+    private static @NotNull ObjectProvider<SimpleBrokerMessageHandler> broker() {
+        SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(new ExecutorSubscribableChannel(),
+                (message, timeout) -> true, new ExecutorSubscribableChannel(), List.of("/topic"));
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId("session");
+        subscribe.setSubscriptionId("subscription");
+        subscribe.setDestination(SUBSCRIBED);
+        broker.getSubscriptionRegistry().registerSubscription(
+                MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("broker", broker);
+        return beanFactory.getBeanProvider(SimpleBrokerMessageHandler.class);
+    }
+}
@@ -1,27 +1,83 @@
 package com.hetacz.productmanager;
 
+import com.hetacz.productmanager.cache.CatalogCaches;
+import com.hetacz.productmanager.cache.CatalogVersion;
 import com.hetacz.productmanager.category.Category;
 import com.hetacz.productmanager.category.CategoryRepository;
+import com.hetacz.productmanager.category.CategoryService;
+import com.hetacz.productmanager.exporter.CatalogExporter;
+import com.hetacz.productmanager.exporter.ExportFormat;
+import com.hetacz.productmanager.importer.ImportFormat;
+import com.hetacz.productmanager.importer.ImportJob;
+import com.hetacz.productmanager.importer.ImportJobService;
+import com.hetacz.productmanager.importer.ImportResult;
+import com.hetacz.productmanager.importer.ProductImporter;
+import com.hetacz.productmanager.importer.RowError;
+import com.hetacz.productmanager.json.CatalogEncoder;
+import com.hetacz.productmanager.paging.KeysetPage;
+import com.hetacz.productmanager.paging.KeysetPager;
+import com.hetacz.productmanager.product.DeletionResult;
 import com.hetacz.productmanager.product.Product;
 import com.hetacz.productmanager.product.ProductDto;
+import com.hetacz.productmanager.product.ProductField;
 import com.hetacz.productmanager.product.ProductRepository;
 import com.hetacz.productmanager.product.ProductService;
+import com.hetacz.productmanager.product.ProductView;
+import com.hetacz.productmanager.product.ProductsChangedEvent;
+import com.hetacz.productmanager.reactive.ProductDetails;
+import com.hetacz.productmanager.reactive.ProductFilter;
+import com.hetacz.productmanager.reactive.ProductRow;
+import com.hetacz.productmanager.reactive.ReactiveCatalogReader;
+import com.hetacz.productmanager.search.ProductTextIndex;
+import com.hetacz.productmanager.websocket.ChangeBatch;
+import com.hetacz.productmanager.websocket.ChangeEvent;
+import com.hetacz.productmanager.websocket.ChangeStream;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -44,6 +100,8 @@ class ProductServiceTest {
     private static final long PRICE_1000 = 1000L;
     private static final long ID_10006 = 10006L;
     private static final long ID_20003 = 20003L;
+    private static final long ID_20005 = 20005L;
+    private static final long ID_MISSING = 99999L;
 
     @Autowired
     private CategoryRepository categoryRepository;
@@ -51,6 +109,32 @@ class ProductServiceTest {
     private ProductService productService;
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private ProductTextIndex textIndex;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private CatalogEncoder encoder;
+    @Autowired
+    private CatalogVersion catalogVersion;
+    @Autowired
+    private CatalogCaches catalogCaches;
+    @Autowired
+    private ChangeStream changeStream;
+    @Autowired
+    private ReactiveCatalogReader reactiveReader;
+    @Autowired
+    private ProductImporter productImporter;
+    @Autowired
+    private ImportJobService importJobService;
+    @Autowired
+    private CatalogExporter catalogExporter;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private KeysetPager pager;
 
     @Test
     void countAllProducts() {
@@ -102,6 +186,296 @@ class ProductServiceTest {
                 .forEach(product -> assertTrue(product.getName().contains("ere")));
     }
 
+    @Test
+    @DirtiesContext
+    void searchForProductWithTextIndex() {
+        assertTrue(textIndex.isReady());
+        assertEquals(Set.of(10020L, 10021L), textIndex.find(ProductTextIndex.Field.NAME, "CEREAL").orElseThrow());
+        assertTrue(textIndex.find(ProductTextIndex.Field.NAME, "ce").isEmpty());
+        Product product = productService.addProduct(ProductDto.of("Zanzibar spice", "Hot and smoky", PRICE_100,
+                List.of(GROCERY)));
+        assertEquals(Set.of(product.getId()), textIndex.find(ProductTextIndex.Field.DESCRIPTION, "D SMO")
+                .orElseThrow());
+        assertEquals(1, productService.findBySpecification("anzib", Sort.unsorted()).size());
+        productService.deleteProduct(product.getId());
+        assertTrue(textIndex.find(ProductTextIndex.Field.NAME, "anzib").orElseThrow().isEmpty());
+    }
+
+    /**
+     * The rebuild is paused after reading the products, and products are written before it goes on,
+     * as if their transactions committed while the scan was running.
+     */
+    @Test
+    void keepWritesCommittedDuringTextIndexRebuild() throws Exception {
+        CountDownLatch scanned = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        KeysetPager pausing = new KeysetPager(100, 1000) {
+            @Override
+            public <T> @NotNull KeysetPage<Tuple> fetchTuples(Class<T> type, @Nullable Specification<T> specification,
+                    @NotNull Collection<String> attributes, @Nullable String sortBy, @Nullable SortDir sortDir,
+                    @Nullable String cursor, @Nullable Integer limit) {
+                KeysetPage<Tuple> page = pager.fetchTuples(type, specification, attributes, sortBy, sortDir, cursor,
+                        limit);
+                scanned.countDown();
+                try {
+                    assertTrue(written.await(1, TimeUnit.MINUTES));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return page;
+            }
+        };
+        ProductTextIndex index = new ProductTextIndex(pausing, 10_000);
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(index::rebuild);
+        assertTrue(scanned.await(1, TimeUnit.MINUTES));
+        index.onProductsChanged(new ProductsChangedEvent(List.of(new ProductsChangedEvent.ProductState(ID_MISSING,
+                "Zanzibar spice", "Hot and smoky", PRICE_100, Map.of(), LocalDateTime.now())), List.of(ID_10005)));
+        written.countDown();
+        rebuild.get(1, TimeUnit.MINUTES);
+
+        assertTrue(index.isReady());
+        assertEquals(Set.of(ID_MISSING), index.find(ProductTextIndex.Field.NAME, "zanzibar").orElseThrow());
+        assertTrue(index.find(ProductTextIndex.Field.NAME, "bread").orElseThrow().isEmpty());
+        assertEquals(Set.of(10020L, 10021L), index.find(ProductTextIndex.Field.NAME, "cereal").orElseThrow());
+    }
+
+    @Test
+    void cacheLookupsUntilWriteCommits() {
+        Product product = productService.findById(ID_10005);
+        Category grocery = categoryService.findById(ID_20005);
+        assertSame(product, productService.findById(ID_10005));
+        assertSame(grocery, categoryService.findById(ID_20005));
+        productService.updateProduct(ID_10005, ProductDto.of(null, product.getDescription(), null, null));
+        assertNotSame(product, productService.findById(ID_10005));
+        assertNotSame(grocery, categoryService.findById(ID_20005));
+    }
+
+    @Test
+    @DirtiesContext
+    void evictOnlyLookupsReferencingChangedCategory() {
+        Product bread = productService.findById(ID_10005);
+        Product novel = productService.findById(ID_10004);
+        categoryService.updateCategory(ID_20005, SORCERY);
+        assertNotSame(bread, productService.findById(ID_10005));
+        assertSame(novel, productService.findById(ID_10004));
+    }
+
+    @Test
+    @DirtiesContext
+    void doNotCacheLookupLoadedBeforeWriteCommitted() {
+        Product stale = productRepository.findWithCategoriesById(ID_10004).orElseThrow();
+        Product loaded = catalogCaches.product(ID_10004, () -> {
+            productService.updateProduct(ID_10004, ProductDto.of(null, YUMMY_BREAD, null, null));
+            return stale;
+        });
+        assertSame(stale, loaded);
+        assertEquals(YUMMY_BREAD, productService.findById(ID_10004).getDescription());
+    }
+
+    @Test
+    void cacheQueryResultsUntilWriteCommits() {
+        Supplier<List<Long>> grocery = () -> productService.findBySpecification(null, null, null, null, null, null,
+                List.of(GROCERY, GROCERY), Sort.by(PRICE)).stream().map(Product::getId).toList();
+        List<Long> ids = grocery.get();
+        assertEquals(ids, grocery.get());
+        Product product = productService.addProduct(ProductDto.of("Rye", "Sourdough rye", PRICE_200,
+                List.of(GROCERY)));
+        assertTrue(grocery.get().contains(product.getId()));
+        productService.deleteProduct(product.getId());
+        assertEquals(ids, grocery.get());
+    }
+
+    @Test
+    void streamProductsBySpecification() {
+        List<Long> ids = new ArrayList<>();
+        long count = productService.forEachBySpecification(null, null, null, PRICE_1000 * 2, null, null, null, PRICE,
+                SortDir.DESC, product -> ids.add(product.getId()));
+        assertEquals(ids.size(), count);
+        assertEquals(productService.findBySpecification(null, null, null, PRICE_1000 * 2, null, null, null,
+                Sort.by(PRICE).descending().and(Sort.by("id").descending())).stream().map(Product::getId).toList(), ids);
+    }
+
+    @Test
+    void encodeProductOncePerModification() {
+        Product product = productService.findById(ID_10004);
+        byte[] json = encoder.encode(product);
+        assertSame(json, encoder.encode(product));
+        String withCategories = new String(encoder.encodeWithCategories(product), StandardCharsets.UTF_8);
+        assertTrue(withCategories.startsWith("{\"id\":10004,\"name\":"));
+        assertTrue(withCategories.endsWith("\"categories\":[{\"id\":20004,\"name\":\"Books\"}]}"));
+    }
+
+    @Test
+    void changeCatalogVersionOnCommittedWrite() {
+        CatalogVersion.Stamp before = catalogVersion.catalog();
+        CatalogVersion.Stamp categoriesBefore = catalogVersion.categories();
+        Product product = productService.addProduct(ProductDto.of("Rye", "Sourdough rye", PRICE_200,
+                List.of(GROCERY)));
+        CatalogVersion.Stamp after = catalogVersion.catalog();
+        assertTrue(after.version() > before.version());
+        assertNotEquals(before.etag(TEST), after.etag(TEST));
+        assertEquals(categoriesBefore, catalogVersion.categories());
+        productService.deleteProduct(product.getId());
+        assertThrows(NoSuchElementException.class, () -> productService.findModifiedById(product.getId()));
+    }
+
+    @Test
+    void resumeChangeStreamAfterCommittedWrites() {
+        long seen = changeStream.since(0, ChangeEvent.Entity.PRODUCT).lastSequence();
+        Product product = productService.addProduct(ProductDto.of("Spelt", "Spelt loaf", PRICE_200,
+                List.of(GROCERY)));
+        productService.deleteProduct(product.getId());
+        ChangeBatch batch = changeStream.since(seen, ChangeEvent.Entity.PRODUCT);
+        List<ChangeEvent> events = batch.events().stream()
+                .filter(event -> event.id().equals(product.getId()))
+                .toList();
+        assertEquals(List.of(ChangeEvent.Type.SAVED, ChangeEvent.Type.DELETED),
+                events.stream().map(ChangeEvent::type).toList());
+        assertEquals("Spelt", events.get(0).fields().get("name"));
+        assertTrue(events.get(0).sequence() < events.get(1).sequence());
+        assertTrue(changeStream.since(batch.lastSequence(), ChangeEvent.Entity.PRODUCT).events().isEmpty());
+    }
+
+    @Test
+    void resnapshotWhenResumingFromAnotherStart() {
+        ChangeBatch current = changeStream.since(0, ChangeEvent.Entity.PRODUCT);
+        assertEquals(changeStream.epoch(), current.epoch());
+        assertFalse(changeStream.since(current.epoch(), current.lastSequence(), ChangeEvent.Entity.PRODUCT)
+                .resnapshot());
+        assertTrue(changeStream.since(current.epoch() - 1, 1, ChangeEvent.Entity.PRODUCT).resnapshot());
+        assertTrue(changeStream.since(current.lastSequence() + 1, ChangeEvent.Entity.PRODUCT).resnapshot());
+        assertFalse(changeStream.since(current.epoch() - 1, 0, ChangeEvent.Entity.PRODUCT).resnapshot());
+    }
+
+    @Test
+    void readProductsReactively() {
+        ProductDetails bread = reactiveReader.findProduct(ID_10005).block();
+        assertEquals(ID_10005, Objects.requireNonNull(bread).id());
+        assertTrue(bread.categories().stream().anyMatch(category -> category.name().equals(GROCERY)));
+        List<Long> prices = reactiveReader.findProducts(new ProductFilter("cereal", null, null, null, null, null,
+                        Set.of(GROCERY)), PRICE, SortDir.DESC, null)
+                .map(ProductRow::price)
+                .collectList()
+                .block();
+        assertEquals(List.of(1499L, 1300L), prices);
+        assertThrows(NoSuchElementException.class, () -> reactiveReader.findProduct(-1L).block());
+    }
+
+    @Test
+    @DirtiesContext
+    void importCsvInChunksAndResume() {
+        String csv = """
+                name,description,price,categories
+                Jam,"Strawberry jam, 300g",450,Grocery|Preserves
+                Tea,Green tea,-5,Grocery
+
+                Rice,White rice,300,
+                Honey,Acacia honey,900,Preserves
+                """;
+        String resumed = "resumed";
+        importJobService.start(resumed, ImportFormat.CSV, 2);
+        importJobService.commitChunk(resumed, List.of(), 2);
+        ImportResult result = productImporter.importProducts(resumed, ImportFormat.CSV, null,
+                new BufferedReader(new StringReader(csv)));
+        assertEquals(ImportJob.Status.COMPLETED, result.status());
+        assertEquals(2, result.committedChunks());
+        assertEquals(2, result.importedRows());
+        assertTrue(productRepository.findAll().stream().noneMatch(product -> product.getName().equals("Jam")));
+        assertThrows(IllegalArgumentException.class, () -> productImporter.importProducts(resumed, ImportFormat.CSV,
+                null, new BufferedReader(new StringReader(csv))));
+
+        result = productImporter.importProducts(null, ImportFormat.CSV, 3, new BufferedReader(new StringReader(csv)));
+        assertEquals(2, result.committedChunks());
+        assertEquals(3, result.importedRows());
+        assertEquals(List.of(new RowError(3, "price must be greater than 0")), result.errors());
+        assertEquals(1, categoryRepository.findAllByNameIn(Set.of("Preserves")).size());
+        assertTrue(productRepository.findAll().stream()
+                .anyMatch(product -> product.getDescription().equals("Strawberry jam, 300g")));
+    }
+
+    /**
+     * "e_b" is answered by the text index on the JPA path, "e_" is too short for it and goes to {@code LIKE},
+     * the reactive path always uses {@code LIKE}.
+     */
+    @Test
+    @DirtiesContext
+    void matchUnderscoreLiterallyOnBothPaths() {
+        Long underscore = productService.addProduct(ProductDto.of("Rye_bread", TEST, PRICE_100, List.of(GROCERY)))
+                .getId();
+        productService.addProduct(ProductDto.of("Ryexbread", TEST, PRICE_100, List.of(GROCERY)));
+        for (String name : List.of("e_b", "e_")) {
+            List<Long> jpa = productService.findBySpecification(name, null, null, null, null, null, null,
+                    Sort.by("id")).stream().map(Product::getId).toList();
+            List<Long> reactive = reactiveReader.findProducts(new ProductFilter(name, null, null, null, null, null,
+                    null), "id", SortDir.ASC, null).map(ProductRow::id).collectList().block();
+            assertEquals(List.of(underscore), jpa, name);
+            assertEquals(jpa, reactive, name);
+        }
+    }
+
+    @Test
+    @DirtiesContext
+    void rejectNullNdjsonRows() {
+        String ndjson = """
+                {"name":"Jam","description":"Strawberry jam","price":450,"categories":["Grocery"]}
+                null
+                {"name":"Honey","description":"Acacia honey","price":900}
+                """;
+        ImportResult result = productImporter.importProducts(null, ImportFormat.NDJSON, null,
+                new BufferedReader(new StringReader(ndjson)));
+        assertEquals(ImportJob.Status.COMPLETED, result.status());
+        assertEquals(2, result.importedRows());
+        assertEquals(1, result.rejectedRows());
+        assertEquals(List.of(new RowError(2, "Expected a JSON object, found null")), result.errors());
+    }
+
+    @Test
+    void exportCatalogAsCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = catalogExporter.export(out, ExportFormat.CSV, false);
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(productRepository.count(), count);
+        assertEquals(count + 1, lines.size());
+        assertTrue(lines.get(0).startsWith("id,name,description,price"));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("10001,Smartphone,")
+                && line.endsWith(",Electronics|Grocery")));
+        out.reset();
+        assertEquals(count, catalogExporter.export(out, ExportFormat.NDJSON, true));
+    }
+
+    @Test
+    @DirtiesContext
+    void importExportedCsv() throws IOException {
+        String description = "Sourdough, \"rye\"\nBaked daily";
+        String category = "Bread|Butter\\";
+        productService.addProduct(ProductDto.of("Loaf", description, 650L, List.of(category)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = catalogExporter.export(out, ExportFormat.CSV, false);
+
+        ImportResult result = productImporter.importProducts(null, ImportFormat.CSV, null,
+                new BufferedReader(new StringReader(out.toString(StandardCharsets.UTF_8))));
+        assertEquals(ImportJob.Status.COMPLETED, result.status());
+        assertEquals(List.of(), result.errors());
+        assertEquals(count, result.importedRows());
+        List<Product> loaves = productRepository.findAll().stream()
+                .filter(product -> product.getName().equals("Loaf"))
+                .toList();
+        assertEquals(2, loaves.size());
+        loaves.forEach(loaf -> assertEquals(description, loaf.getDescription()));
+        assertEquals(1, categoryRepository.findAllByNameIn(Set.of(category)).size());
+        assertTrue(categoryRepository.findAllByNameIn(Set.of("Bread", "Butter")).isEmpty());
+    }
+
+    @Test
+    void countCategoryFacets() {
+        String electronics = "Electronics";
+        assertEquals(Map.of(electronics, 2L, GROCERY, 2L),
+                productService.findFacets("cereal", null, null, null, null, null, Set.of(GROCERY)));
+        assertEquals(Map.of(electronics, 1L, GROCERY, 1L),
+                productService.findFacets("cereal", null, 1400L, null, null, null, Set.of(GROCERY)));
+        assertTrue(productService.findFacets("no such product", null, null, null, null, null, null).isEmpty());
+    }
+
     @Test
     void searchForProductAndSort() {
         assertEquals(4,
@@ -109,6 +483,55 @@ class ProductServiceTest {
                         Set.of("A", GROCERY, "Electronics"), Sort.by(PRICE).descending()).size());
     }
 
+    @Test
+    void pageThroughProductsByPrice() {
+        List<Long> prices = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<Product> page = productService.findPage(PRICE, SortDir.DESC, cursor, 3);
+            assertTrue(page.items().size() <= 3);
+            page.items().forEach(product -> prices.add(product.getPrice()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertEquals(8, prices.size());
+        assertEquals(prices.stream().sorted(Comparator.reverseOrder()).toList(), prices);
+    }
+
+    @Test
+    void pageThroughProductsBySpecification() {
+        KeysetPage<Product> first = productService.findPageBySpecification(null, null, null, null, null, null,
+                Set.of(GROCERY), PRICE, SortDir.ASC, null, 2);
+        assertEquals(2, first.items().size());
+        assertTrue(first.hasNext());
+        KeysetPage<Product> second = productService.findPageBySpecification(null, null, null, null, null, null,
+                Set.of(GROCERY), PRICE, SortDir.ASC, first.nextCursor(), 2);
+        assertEquals(2, second.items().size());
+        assertTrue(first.items().get(1).getPrice() <= second.items().get(0).getPrice());
+        assertThrows(IllegalArgumentException.class, () -> productService.findPage(PRICE, SortDir.DESC,
+                first.nextCursor(), 2));
+    }
+
+    @Test
+    void findSparseFieldsOfProduct() {
+        ProductView view = productService.findViewById(ID_10005, ProductField.parse("name,price"));
+        assertEquals(Set.of(ProductField.ID, ProductField.NAME, ProductField.PRICE), view.values().keySet());
+        assertEquals(ID_10005, view.id());
+        assertEquals(299L, view.values().get(ProductField.PRICE));
+        ProductView withCategories = productService.findViewById(ID_10006, ProductField.parse("categories"));
+        assertEquals(3, ((List<?>) withCategories.values().get(ProductField.CATEGORIES)).size());
+        assertThrows(IllegalArgumentException.class, () -> ProductField.parse("name,weight"));
+    }
+
+    @Test
+    void pageThroughSparseFieldsBySpecification() {
+        KeysetPage<ProductView> page = productService.findViewPageBySpecification(null, null, null, null, null, null,
+                Set.of(GROCERY), ProductField.parse("name"), PRICE, SortDir.DESC, null, 3);
+        assertEquals(3, page.items().size());
+        assertTrue(page.hasNext());
+        page.items().forEach(product -> assertEquals(Set.of(ProductField.ID, ProductField.NAME),
+                product.values().keySet()));
+    }
+
     @Test
     @DirtiesContext
     @Transactional
@@ -155,6 +578,20 @@ class ProductServiceTest {
                 ID_10004))));
     }
 
+    @Test
+    @DirtiesContext
+    @Transactional
+    void deleteProducts() {
+        Category grocery = categoryRepository.findByName(GROCERY).orElseThrow();
+        assertEquals(4, grocery.getProducts().size());
+        DeletionResult result = productService.deleteProducts(List.of(ID_10005, ID_10006, 1L));
+        assertEquals(List.of(ID_10005, ID_10006), result.deleted());
+        assertEquals(List.of(1L), result.missing());
+        assertEquals(6, productRepository.findAll().size());
+        assertEquals(3, grocery.getProducts().size());
+        assertEquals(0, productRepository.findExistingIds(List.of(ID_10005, ID_10006)).size());
+    }
+
     @Test
     @DirtiesContext
     @Transactional
@@ -179,4 +616,43 @@ class ProductServiceTest {
         assertTrue(productRepository.findByName(TEST).isPresent());
         assertTrue(productRepository.findByName(BREAD_2).isPresent());
     }
+
+    @Test
+    @DirtiesContext
+    @Transactional
+    void addProductsResolvesCategoriesOnce() {
+        ProductDto productDto1 = ProductDto.of(TEST, TEST, PRICE_100, List.of());
+        ProductDto productDto2 = ProductDto.of(BREAD_2, YUMMY_BREAD, PRICE_200, List.of(SORCERY, SORCERY));
+        ProductDto productDto3 = ProductDto.of(YUMMY_BREAD, YUMMY_BREAD, PRICE_200, List.of(SORCERY));
+        List<Product> products = productService.addProductsFromDto(List.of(productDto1, productDto2, productDto3));
+        assertEquals(OTHER, products.get(0).getCategories().first().getName());
+        assertEquals(1, products.get(1).getCategories().size());
+        assertEquals(1, categoryRepository.findAllByNameIn(Set.of(SORCERY)).size());
+        assertEquals(2, productRepository.findAllByCategories_Name(SORCERY).size());
+    }
+
+    @Test
+    @DirtiesContext
+    void addProductsInFewerStatementsThanOneByOne() {
+        List<ProductDto> productDtos = IntStream.range(0, 100)
+                .mapToObj(i -> ProductDto.of("%s %d".formatted(TEST, i), TEST, PRICE_100 + i, List.of(GROCERY)))
+                .toList();
+        long oneByOne = countStatements(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> productDtos.forEach(productService::addProduct)));
+        long bulk = countStatements(() -> productService.addProductsFromDto(productDtos));
+        log.info("100 products: {} statements one by one, {} in bulk", oneByOne, bulk);
+        assertTrue(bulk < oneByOne);
+    }
+
+    private long countStatements(Runnable insert) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            insert.run();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.hetacz.productmanager;
+
+import com.hetacz.productmanager.concurrency.VirtualThreads;
+import com.hetacz.productmanager.product.ProductDto;
+import com.hetacz.productmanager.product.ProductService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs services concurrently on virtual threads, with fewer database permits than threads,
+ * and looks for virtual threads pinned to their carrier while blocked inside a {@code synchronized} block.
+ * Pinning inside Hibernate or the application fails the test, pinning inside the JDBC driver is only logged,
+ * as the test driver differs from the production one.
+ */
+@Slf4j
+@DirtiesContext
+@ActiveProfiles("test")
+@EnabledIf("com.hetacz.productmanager.concurrency.VirtualThreads#isAvailable")
+@SpringBootTest(classes = ProductmanagerApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:pinning;NON_KEYWORDS=USER;MODE=MYSQL;",
+        "productmanager.virtual-threads.enabled=true",
+        "productmanager.database.max-concurrency=4",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.hetacz=INFO"
+})
+class VirtualThreadPinningTest {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final List<String> DRIVERS = List.of("org.h2.", "com.mysql.");
+    private static final List<String> CHECKED = List.of("org.hibernate.", "com.hetacz.");
+    private static final int TASKS = 200;
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void servicesDoNotPinCarrierThreads() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            runConcurrently();
+            recording.stop();
+            Path file = Files.createTempFile("pinning", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        }
+        List<String> pinned = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            culprit(event).ifPresent(frame -> {
+                if (DRIVERS.stream().anyMatch(frame::startsWith)) {
+                    log.warn("Pinned in JDBC driver at {}", frame);
+                } else {
+                    pinned.add(frame);
+                }
+            });
+        }
+        assertTrue(pinned.isEmpty(), () -> "Pinned at " + pinned);
+    }
+
+    private void runConcurrently() throws Exception {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("pinning-");
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            int task = i;
+            futures.add(executor.submit(() -> work(task)));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
+
+    private void work(int task) {
+        switch (task % 3) {
+            case 0 -> productService.findBySpecification("e", null, null, null, null, null, null,
+                    Sort.by("price"));
+            case 1 -> productService.findPage(null, null, null, 10);
+            default -> productService.addProductsFromDto(List.of(ProductDto.of("Pinning %d".formatted(task),
+                    "Pinning test", 100L + task, List.of("Pinning"))));
+        }
+    }
+
+    /**
+     * @return Innermost frame of the driver, Hibernate or the application, where the thread was pinned.
+     */
+    private static @NotNull Optional<String> culprit(@NotNull RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return Optional.empty();
+        }
+        return event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .map(method -> method.getType().getName() + "." + method.getName())
+                .filter(frame -> DRIVERS.stream().anyMatch(frame::startsWith)
+                        || CHECKED.stream().anyMatch(frame::startsWith))
+                .findFirst();
+    }
+}
@@ -30,3 +30,7 @@ insert into PRODUCT_CATEGORIES (PRODUCT_ID, CATEGORY_ID) values
 (10020, 20001),
 (10021, 20005),
 (10021, 20001);
+
+-- generated ids start above the fixed ones, so bulk inserts never reach them
+alter sequence Product_SEQ restart with 100001;
+alter sequence Category_SEQ restart with 100001;